@@ -61,6 +61,7 @@ dependencies {
         bundledPlugin("org.jetbrains.plugins.yaml")
 
         testFramework(TestFrameworkType.JUnit5)
+        testFramework(TestFrameworkType.Plugin.Java)
     }
 
     implementation("jakarta.validation:jakarta.validation-api:3.1.0")
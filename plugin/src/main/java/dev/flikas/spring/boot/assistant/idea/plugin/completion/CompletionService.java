@@ -174,8 +174,8 @@ public final class CompletionService {
       PropertyName query = PropertyName.adapt(queryString);
       for (int i = 0; !candidates.isEmpty() && i < query.getNumberOfElements(); i++) {
         String qp = query.getElement(i, UNIFORM);
-        candidates = candidates.parallelStream().filter(tn -> !tn.isIndexed()).map(NameTreeNode::getChildren)
-            .map(trie -> trie.prefixMap(qp)).flatMap(m -> m.values().parallelStream()).collect(Collectors.toSet());
+        candidates = candidates.parallelStream().filter(tn -> !tn.isIndexed())
+            .flatMap(tn -> tn.getChildren(qp).stream()).collect(Collectors.toSet());
       }
     }
     // get all properties in candidates;
@@ -192,7 +192,7 @@ public final class CompletionService {
           nextNodes.add(n);
         }
       }
-      nodes = nextNodes.parallelStream().flatMap(tn -> tn.getChildren().values().stream()).collect(Collectors.toSet());
+      nodes = nextNodes.parallelStream().flatMap(tn -> tn.getChildren("").stream()).collect(Collectors.toSet());
     }
     return result;
   }
@@ -0,0 +1,137 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timers of metadata loading and lookups, for finding out where the time goes in large projects.
+ * <p>
+ * They are application wide, as the loaded metadata is shared between projects, and cheap enough to be always on:
+ * recording is a few non-blocking additions. Use the "Spring Boot Configuration Metadata Statistics" action
+ * (Help | Diagnostic Tools) to see them.
+ */
+public final class MetadataStatistics {
+  private static final Map<Counter, LongAdder> COUNTERS = new EnumMap<>(Counter.class);
+  private static final Map<Timer, TimerData> TIMERS = new EnumMap<>(Timer.class);
+
+  static {
+    for (Counter counter : Counter.values()) {
+      COUNTERS.put(counter, new LongAdder());
+    }
+    for (Timer timer : Timer.values()) {
+      TIMERS.put(timer, new TimerData());
+    }
+  }
+
+
+  private MetadataStatistics() {
+  }
+
+
+  public static void increment(@NotNull Counter counter) {
+    COUNTERS.get(counter).increment();
+  }
+
+
+  /**
+   * @return the start time for {@link #record(Timer, long)}.
+   */
+  public static long start() {
+    return System.nanoTime();
+  }
+
+
+  /**
+   * Record an occurrence of the timer, which started at {@code startNanos}.
+   *
+   * @return the elapsed time in nanoseconds.
+   */
+  public static long record(@NotNull Timer timer, long startNanos) {
+    long elapsed = System.nanoTime() - startNanos;
+    TimerData data = TIMERS.get(timer);
+    data.count.increment();
+    data.totalNanos.add(elapsed);
+    data.maxNanos.accumulate(elapsed);
+    return elapsed;
+  }
+
+
+  public static void reset() {
+    COUNTERS.values().forEach(LongAdder::reset);
+    TIMERS.values().forEach(TimerData::reset);
+  }
+
+
+  /**
+   * @return a human-readable report of all counters and timers.
+   */
+  @NotNull
+  public static String report() {
+    StringBuilder sb = new StringBuilder();
+    for (Timer timer : Timer.values()) {
+      TimerData data = TIMERS.get(timer);
+      long count = data.count.sum();
+      long total = data.totalNanos.sum();
+      sb.append(String.format("%s: %d times, total %.1f ms, avg %.3f ms, max %.1f ms%n", timer.description, count,
+          total / 1e6, count == 0 ? 0 : total / 1e6 / count, data.maxNanos.get() / 1e6));
+    }
+    for (Counter counter : Counter.values()) {
+      sb.append(counter.description).append(": ").append(COUNTERS.get(counter).sum()).append('\n');
+    }
+    return sb.toString();
+  }
+
+
+  public enum Counter {
+    CACHE_HITS("Metadata files read from persistent cache"),
+    CACHE_MISSES("Metadata files not in persistent cache"),
+    SHARED_METADATA_HITS("Metadata files already loaded by another project"),
+    FILES_DEFERRED("Metadata files deferred until first use"),
+    FILES_LOADED_ON_DEMAND("Deferred metadata files loaded"),
+    SHARED_INDEX_HITS("Module indexes shared with another module"),
+    LOOKUPS_REJECTED("Lookups rejected by name filters");
+
+    private final String description;
+
+
+    Counter(String description) {
+      this.description = description;
+    }
+  }
+
+
+  public enum Timer {
+    PARSE_FILE("Parse metadata file"),
+    BUILD_MODULE_INDEX("Build module index"),
+    MERGE_SNAPSHOT("Merge index snapshot"),
+    GENERATE_CLASS_METADATA("Generate metadata from class"),
+    SCAN_SOURCES("Scan @ConfigurationProperties sources"),
+    GET_PROPERTY("Property lookup"),
+    FIND_IN_NAME_TRIE("Name trie lookup");
+
+    private final String description;
+
+
+    Timer(String description) {
+      this.description = description;
+    }
+  }
+
+
+  private static class TimerData {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+
+    void reset() {
+      count.reset();
+      totalNanos.reset();
+      maxNanos.reset();
+    }
+  }
+}
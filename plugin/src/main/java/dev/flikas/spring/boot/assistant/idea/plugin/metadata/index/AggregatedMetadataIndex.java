@@ -1,22 +1,62 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
 import dev.flikas.spring.boot.assistant.idea.plugin.misc.MutableReference;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
-public class AggregatedMetadataIndex implements MetadataIndex {
+import static dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationPropertyName.Form.UNIFORM;
+
+/**
+ * An index that merges several indexes, the first index that contains an item wins.
+ * <p>
+ * Lookups are answered by a merged {@link Snapshot} of all child indexes, so that a lookup costs a few hash probes
+ * instead of probes (and a {@link MutableReference#dereference()}) in each child index. The snapshot is rebuilt
+ * when the children list is modified, or when a child index is reloaded because its source file has changed.
+ * It is rebuilt without holding any lock, as dereferencing children may load files or wait for read actions.
+ * <p>
+ * As a {@link ModificationTracker}, the modification count changes every time the snapshot is rebuilt,
+ * so an enclosing aggregated index can tell whether this one has actually changed.
+ * <p>
+ * Children are assumed to change only when a reference to them is {@linkplain #referenceChanged() changed},
+ * children that may change otherwise (e.g. metadata generated from classes being edited) should be
+ * {@linkplain #addDependency(ModificationTracker) tracked} too.
+ * <p>
+ * Children that are {@link LazyMetadataIndexReference}s are left out of the snapshot until they are loaded,
+ * a lookup loads the ones that {@linkplain LazyMetadataIndexReference#mightContain may contain} the name,
+ * getting all items loads all of them. Unloaded references of a child aggregated index are inherited, so that they
+ * are loaded by lookups in this one as well, instead of being loaded all by merging the child. A snapshot that has
+ * a reference loaded by another index is rebuilt by the first lookup that may hit the reference.
+ */
+public class AggregatedMetadataIndex implements MetadataIndex, ModificationTracker {
+  private static final SimpleModificationTracker REFERENCES_MODIFICATION_TRACKER = new SimpleModificationTracker();
   private final Deque<MutableReference<? extends MetadataIndex>> indexes = new ConcurrentLinkedDeque<>();
+  private final AtomicLong structureModificationCount = new AtomicLong();
+  private final AtomicLong modificationCount = new AtomicLong();
+  private final List<ModificationTracker> dependencies = new CopyOnWriteArrayList<>();
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
 
 
   public AggregatedMetadataIndex() {
@@ -37,6 +77,7 @@ public class AggregatedMetadataIndex implements MetadataIndex {
 
   public void addFirst(MutableReference<? extends MetadataIndex> index) {
     this.indexes.addFirst(index);
+    this.structureModificationCount.incrementAndGet();
   }
 
 
@@ -47,6 +88,26 @@ public class AggregatedMetadataIndex implements MetadataIndex {
 
   public void addLast(MutableReference<? extends MetadataIndex> index) {
     this.indexes.addLast(index);
+    this.structureModificationCount.incrementAndGet();
+  }
+
+
+  /**
+   * Children will be checked for changes whenever the tracker changes, in addition to changes of references.
+   */
+  public void addDependency(@NotNull ModificationTracker tracker) {
+    if (this.dependencies.contains(tracker)) return;
+    this.dependencies.add(tracker);
+    this.structureModificationCount.incrementAndGet();
+  }
+
+
+  /**
+   * Tell all aggregated indexes that a {@link MutableReference} may be dereferenced to another index than before,
+   * e.g. its source file is changed or reloaded, so they check their children on next lookup.
+   */
+  public static void referenceChanged() {
+    REFERENCES_MODIFICATION_TRACKER.incModificationCount();
   }
 
 
@@ -57,20 +118,25 @@ public class AggregatedMetadataIndex implements MetadataIndex {
     Iterator<MutableReference<? extends MetadataIndex>> iterator = this.indexes.iterator();
     while (iterator.hasNext()) {
       MutableReference<? extends MetadataIndex> ref = iterator.next();
+      // Nothing to refresh before it is loaded.
+      if (isUnloaded(ref)) continue;
       ref.refresh();
       if (ref.dereference() == null) iterator.remove();
     }
+    this.structureModificationCount.incrementAndGet();
   }
 
   @Override
   public boolean isEmpty() {
-    return getIndexStream().allMatch(MetadataIndex::isEmpty);
+    Snapshot snapshot = getSnapshot();
+    // A file is loaded lazily only if it has names in it.
+    return snapshot.unloaded().isEmpty() && snapshot.indexes().stream().allMatch(MetadataIndex::isEmpty);
   }
 
 
   @Override
   public @NotNull Project project() {
-    return getIndexStream().map(MetadataIndex::project).reduce((p1, p2) -> {
+    return getSnapshot().indexes().stream().map(MetadataIndex::project).reduce((p1, p2) -> {
       if (p1 == p2) {
         return p1;
       } else {
@@ -82,89 +148,534 @@ public class AggregatedMetadataIndex implements MetadataIndex {
 
   @Override
   public @NotNull List<MetadataSource> getSource() {
-    return getIndexStream()
-        .map(MetadataIndex::getSource)
-        .flatMap(List::stream)
-        .toList();
+    Snapshot snapshot = getSnapshot();
+    return Stream.concat(
+        snapshot.indexes().stream().map(MetadataIndex::getSource).flatMap(List::stream),
+        snapshot.unloaded().stream().map(LazyMetadataIndexReference::getSource)
+    ).distinct().toList();
   }
 
 
   @Override
   public @Nullable MetadataGroup getGroup(String name) {
-    return getIndexStream().map(index -> index.getGroup(name)).filter(Objects::nonNull).findFirst().orElse(null);
+    PropertyName key = PropertyName.adapt(name);
+    NameBloomFilter.Probe probe = NameBloomFilter.Probe.of(key);
+    Snapshot snapshot = getSnapshot(probe);
+    return snapshot.names().mightBeName(probe) ? snapshot.groups().get(key) : null;
   }
 
 
   @Override
   public @NotNull Map<PropertyName, MetadataGroup> getGroups() {
-    return getIndexStream().flatMap(index -> index.getGroups().entrySet().stream()).collect(
-        Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    return getFullSnapshot().groups().asMap();
   }
 
 
   @Override
   public MetadataProperty getProperty(String name) {
-    return getIndexStream()
-        .map(index -> index.getProperty(name))
-        .filter(Objects::nonNull)
-        .findFirst().orElse(null);
+    long start = MetadataStatistics.start();
+    try {
+      PropertyName key = PropertyName.adapt(name);
+      NameBloomFilter.Probe probe = NameBloomFilter.Probe.of(key);
+      Snapshot snapshot = getSnapshot(probe);
+      if (!snapshot.names().mightBeName(probe)) {
+        MetadataStatistics.increment(MetadataStatistics.Counter.LOOKUPS_REJECTED);
+        return null;
+      }
+      return snapshot.properties().get(key);
+    } finally {
+      MetadataStatistics.record(MetadataStatistics.Timer.GET_PROPERTY, start);
+    }
   }
 
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Same as asking each child in order, the first child that has any parent property wins, even if a later child has
+   * a nearer one.
+   */
   @Override
   public MetadataProperty getNearestParentProperty(String name) {
-    return getIndexStream()
-        .map(index -> index.getNearestParentProperty(name))
-        .filter(Objects::nonNull)
-        .findFirst().orElse(null);
+    PropertyName key = PropertyName.adapt(name);
+    NameBloomFilter.Probe probe = NameBloomFilter.Probe.of(key);
+    Snapshot snapshot = getSnapshot(probe);
+    MergedItems.Entry<MetadataProperty> nearest = null;
+    // Unknown names (usually user defined keys) are rejected level by level without probing the map.
+    for (int size = key.getNumberOfElements(); size > 0; size--) {
+      if (!snapshot.names().mightBeName(probe, size)) continue;
+      MergedItems.Entry<MetadataProperty> entry = snapshot.properties().find(key.chop(size));
+      if (entry != null && (nearest == null || entry.rank() < nearest.rank())) nearest = entry;
+    }
+    return nearest == null ? null : nearest.item();
   }
 
 
   @Override
   public @NotNull Map<PropertyName, MetadataProperty> getProperties() {
-    return getIndexStream().flatMap(index -> index.getProperties().entrySet().stream()).collect(
-        Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    return getFullSnapshot().properties().asMap();
   }
 
 
   @Override
   public MetadataHint getHint(String name) {
-    return getIndexStream()
-        .map(index -> index.getHint(name))
-        .filter(Objects::nonNull)
-        .findFirst().orElse(null);
+    PropertyName key = PropertyName.adapt(name);
+    NameBloomFilter.Probe probe = NameBloomFilter.Probe.of(key);
+    Snapshot snapshot = getSnapshot(probe);
+    return snapshot.names().mightBeName(probe) ? snapshot.hints().get(key) : null;
   }
 
 
   @Override
   public @NotNull Map<PropertyName, MetadataHint> getHints() {
-    return getIndexStream().flatMap(index -> index.getHints().entrySet().stream()).collect(
-        Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    return getFullSnapshot().hints().asMap();
   }
 
 
   @Override
   public MetadataItem getPropertyOrGroup(String name) {
-    return getIndexStream()
-        .map(index -> index.getPropertyOrGroup(name))
-        .filter(Objects::nonNull)
-        .findFirst().orElse(null);
+    PropertyName key = PropertyName.adapt(name);
+    NameBloomFilter.Probe probe = NameBloomFilter.Probe.of(key);
+    Snapshot snapshot = getSnapshot(probe);
+    if (!snapshot.names().mightBeName(probe)) return null;
+    MergedItems.Entry<MetadataProperty> property = snapshot.properties().find(key);
+    MergedItems.Entry<MetadataGroup> group = snapshot.groups().find(key);
+    // The property wins in the same index.
+    if (group == null || property != null && property.rank() <= group.rank()) {
+      return property == null ? null : property.item();
+    }
+    return group.item();
   }
 
 
   @Override
   public @Nullable NameTreeNode findInNameTrie(String prefix) {
-    return getIndexStream()
-        .map(index -> index.findInNameTrie(prefix))
+    long start = MetadataStatistics.start();
+    try {
+      PropertyName key = PropertyName.adapt(prefix);
+      NameBloomFilter.Probe probe = NameBloomFilter.Probe.of(key);
+      Snapshot snapshot = getSnapshot(probe);
+      if (!snapshot.names().mightBeNameOrPrefix(probe)) {
+        MetadataStatistics.increment(MetadataStatistics.Counter.LOOKUPS_REJECTED);
+        return null;
+      }
+      NameTreeNode root = getLoadedRoot(snapshot);
+      return root == null ? null : root.findChild(key);
+    } finally {
+      MetadataStatistics.record(MetadataStatistics.Timer.FIND_IN_NAME_TRIE, start);
+    }
+  }
+
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The returned count changes only if any child index has changed since the last call.
+   */
+  @Override
+  public long getModificationCount() {
+    getSnapshot();
+    return this.modificationCount.get();
+  }
+
+
+  /**
+   * @return root of the merged name trees of the loaded children, without loading unloaded ones of child aggregated
+   * indexes, which have been loaded by this one if needed.
+   */
+  private static @Nullable NameTreeNode getLoadedRoot(Snapshot snapshot) {
+    return MergedNameTreeNode.of(snapshot.indexes().stream()
+        .map(index -> index instanceof AggregatedMetadataIndex aggregated
+            ? getLoadedRoot(aggregated.getSnapshot())
+            : index.findInNameTrie(""))
         .filter(Objects::nonNull)
-        .reduce(NameTreeNode::merge)
-        .orElse(null);
+        .toList());
+  }
+
+
+  private static boolean isUnloaded(MutableReference<? extends MetadataIndex> ref) {
+    return ref instanceof LazyMetadataIndexReference lazy && !lazy.isLoaded();
+  }
+
+
+  /**
+   * Get the snapshot for looking up the name, unloaded children that may contain the name are loaded first.
+   * <p>
+   * Every unloaded child that may contain it is loaded, not only until the name is found,
+   * so the result is the same as if all children were loaded.
+   */
+  private @NotNull Snapshot getSnapshot(NameBloomFilter.Probe probe) {
+    Snapshot snapshot = getSnapshot();
+    if (snapshot.unloaded().isEmpty()) return snapshot;
+    boolean loaded = false;
+    for (LazyMetadataIndexReference ref : snapshot.unloaded()) {
+      if (ref.mightContain(probe)) {
+        // It may have been loaded by another index that inherits it, or be unable to load for now (dumb mode).
+        ref.dereference();
+        loaded |= ref.isLoaded();
+      }
+    }
+    return loaded ? reloadSnapshot() : snapshot;
+  }
+
+
+  /**
+   * Get the snapshot with all children loaded.
+   */
+  private @NotNull Snapshot getFullSnapshot() {
+    Snapshot snapshot = getSnapshot();
+    if (snapshot.unloaded().isEmpty()) return snapshot;
+    boolean loaded = false;
+    for (LazyMetadataIndexReference ref : snapshot.unloaded()) {
+      ref.dereference();
+      loaded |= ref.isLoaded();
+    }
+    return loaded ? reloadSnapshot() : snapshot;
+  }
+
+
+  /**
+   * Get the current snapshot, rebuilt if any of its unloaded references has been loaded by an enclosing index.
+   */
+  private @NotNull Snapshot getSnapshotOfLoaded() {
+    Snapshot snapshot = getSnapshot();
+    for (LazyMetadataIndexReference ref : snapshot.unloaded()) {
+      if (ref.isLoaded()) return reloadSnapshot();
+    }
+    return snapshot;
+  }
+
+
+  private @NotNull Snapshot reloadSnapshot() {
+    this.structureModificationCount.incrementAndGet();
+    return getSnapshot();
   }
 
 
-  private @NotNull Stream<? extends MetadataIndex> getIndexStream() {
-    return indexes.stream()
-        .map(MutableReference::dereference)
-        .filter(Objects::nonNull);
+  /**
+   * Get the current snapshot, rebuild it if it is out of date.
+   * <p>
+   * Dereferencing all children (which reloads the changed ones) is only needed if any reference (or any
+   * {@linkplain #addDependency(ModificationTracker) dependency}) has {@linkplain #referenceChanged() changed}
+   * since the snapshot was taken, the snapshot is only rebuilt if any child index actually changes,
+   * i.e. a child is replaced, or the {@linkplain ModificationTracker modification count} of a child is changed.
+   * <p>
+   * No lock is held while rebuilding, a concurrent rebuild may build the same one again, which is harmless,
+   * the snapshot is published only if no other one has been published since the rebuild started.
+   */
+  private @NotNull Snapshot getSnapshot() {
+    long externalModificationCount = getExternalModificationCount();
+    long structureModificationCount = this.structureModificationCount.get();
+    Snapshot current = this.snapshot.get();
+    if (current != null && current.isUpToDate(externalModificationCount, structureModificationCount)) {
+      return current;
+    }
+    List<MetadataIndex> children = new ArrayList<>(this.indexes.size());
+    Set<LazyMetadataIndexReference> unloaded = new LinkedHashSet<>();
+    for (MutableReference<? extends MetadataIndex> ref : this.indexes) {
+      if (isUnloaded(ref)) {
+        unloaded.add((LazyMetadataIndexReference) ref);
+      } else {
+        MetadataIndex index = ref.dereference();
+        if (index == null) continue;
+        // The inherited references of it may have been loaded by this one.
+        if (index instanceof AggregatedMetadataIndex aggregated) aggregated.getSnapshotOfLoaded();
+        children.add(index);
+      }
+    }
+    long[] childModificationCounts = getModificationCounts(children);
+    for (MetadataIndex child : children) {
+      if (child instanceof AggregatedMetadataIndex aggregated) {
+        unloaded.addAll(aggregated.getSnapshot().unloaded());
+      }
+    }
+    Snapshot updated;
+    boolean merged = false;
+    if (current != null && current.structureModificationCount() == structureModificationCount
+        && isSameIndexes(current.indexes(), children) && current.unloaded().equals(List.copyOf(unloaded))
+        && Arrays.equals(current.childModificationCounts(), childModificationCounts)) {
+      updated = current.withModificationCounts(externalModificationCount);
+    } else {
+      updated = Snapshot.merge(externalModificationCount, structureModificationCount, children, unloaded,
+          childModificationCounts);
+      merged = true;
+    }
+    if (this.snapshot.compareAndSet(current, updated) && merged) {
+      this.modificationCount.incrementAndGet();
+    }
+    // Even if another one has been published, this one is up-to-date for this lookup.
+    return updated;
+  }
+
+
+  private long getExternalModificationCount() {
+    long count = REFERENCES_MODIFICATION_TRACKER.getModificationCount();
+    for (ModificationTracker dependency : this.dependencies) {
+      // The sum changes if any of them changes, as they never decrease.
+      count += dependency.getModificationCount();
+    }
+    return count;
+  }
+
+
+  private static long[] getModificationCounts(List<? extends MetadataIndex> indexes) {
+    long[] counts = new long[indexes.size()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = indexes.get(i) instanceof ModificationTracker tracker ? tracker.getModificationCount() : 0;
+    }
+    return counts;
+  }
+
+
+  private static boolean isSameIndexes(List<? extends MetadataIndex> l1, List<? extends MetadataIndex> l2) {
+    if (l1.size() != l2.size()) return false;
+    for (int i = 0; i < l1.size(); i++) {
+      if (l1.get(i) != l2.get(i)) return false;
+    }
+    return true;
+  }
+
+
+  /**
+   * An immutable view of the merged child indexes.
+   *
+   * @param numberOfRanks number of the ranks of items in this snapshot, items of the n-th leaf index (i.e. not an
+   *                      aggregated one) have rank n, the less the rank is, the higher the priority is.
+   */
+  private record Snapshot(
+      long externalModificationCount,
+      long structureModificationCount,
+      List<? extends MetadataIndex> indexes,
+      List<LazyMetadataIndexReference> unloaded,
+      long[] childModificationCounts,
+      int numberOfRanks,
+      MergedItems<MetadataGroup> groups,
+      MergedItems<MetadataProperty> properties,
+      MergedItems<MetadataHint> hints,
+      KnownNames names
+  ) {
+    static Snapshot merge(
+        long externalModificationCount, long structureModificationCount,
+        List<? extends MetadataIndex> indexes, Collection<LazyMetadataIndexReference> unloaded,
+        long[] childModificationCounts
+    ) {
+      long start = MetadataStatistics.start();
+      MergedItems<MetadataGroup> groups = new MergedItems<>();
+      MergedItems<MetadataProperty> properties = new MergedItems<>();
+      MergedItems<MetadataHint> hints = new MergedItems<>();
+      int rank = 0;
+      for (MetadataIndex index : indexes) {
+        if (index instanceof AggregatedMetadataIndex aggregated) {
+          // Only the loaded items, the unloaded ones are inherited.
+          Snapshot snapshot = aggregated.getSnapshot();
+          groups.addAll(rank, snapshot.groups());
+          properties.addAll(rank, snapshot.properties());
+          hints.addAll(rank, snapshot.hints());
+          rank += snapshot.numberOfRanks();
+        } else {
+          int r = rank++;
+          index.getGroups().forEach((name, group) -> groups.add(r, name, group));
+          index.getProperties().forEach((name, property) -> properties.add(r, name, property));
+          index.getHints().forEach((name, hint) -> hints.add(r, name, hint));
+        }
+      }
+      KnownNames names = KnownNames.of(groups.names(), properties.names(), hints.names());
+      MetadataStatistics.record(MetadataStatistics.Timer.MERGE_SNAPSHOT, start);
+      return new Snapshot(externalModificationCount, structureModificationCount, indexes, List.copyOf(unloaded),
+          childModificationCounts, rank, groups, properties, hints, names);
+    }
+
+
+    boolean isUpToDate(long externalModificationCount, long structureModificationCount) {
+      return this.externalModificationCount == externalModificationCount
+          && this.structureModificationCount == structureModificationCount;
+    }
+
+
+    Snapshot withModificationCounts(long externalModificationCount) {
+      return new Snapshot(externalModificationCount, structureModificationCount, indexes, unloaded,
+          childModificationCounts, numberOfRanks, groups, properties, hints, names);
+    }
+  }
+
+
+  /**
+   * Merged items of child indexes by name, with the rank of the child index that each one comes from.
+   * <p>
+   * {@link PropertyName#equals(Object)} is wildcard-aware and not transitive (both {@code a.x.b} and {@code a.y.b}
+   * equal {@code a[*].b}, but not each other), and all names of the same number of elements have the same
+   * {@linkplain PropertyName#hashCode() hash}, so it is not a key here. Names without wildcards are keyed by their
+   * elements in uniform form, names with wildcards are grouped by the elements before the first wildcard,
+   * and matched one by one. A lookup returns the one of the highest priority of both.
+   */
+  private static final class MergedItems<T> {
+    private static final char SEPARATOR = '\0';
+
+    private final Map<String, Entry<T>> names = new HashMap<>();
+    private final Map<WildcardKey, List<Entry<T>>> wildcardNames = new HashMap<>();
+    /**
+     * All entries, ordered by rank.
+     */
+    private final List<Entry<T>> entries = new ArrayList<>();
+    private volatile Map<PropertyName, T> map = null;
+
+
+    void add(int rank, PropertyName name, T item) {
+      Entry<T> entry = new Entry<>(rank, name, item);
+      int wildcard = indexOfFirstWildcard(name);
+      if (wildcard < 0) {
+        // Keep the first one, as what the lookup in each index one by one does.
+        if (this.names.putIfAbsent(keyOf(name, name.getNumberOfElements()), entry) != null) return;
+      } else {
+        this.wildcardNames.computeIfAbsent(new WildcardKey(keyOf(name, wildcard), name.getNumberOfElements()),
+            k -> new ArrayList<>()).add(entry);
+      }
+      this.entries.add(entry);
+    }
+
+
+    void addAll(int baseRank, MergedItems<T> items) {
+      for (Entry<T> entry : items.entries) {
+        add(baseRank + entry.rank(), entry.name(), entry.item());
+      }
+    }
+
+
+    @Nullable T get(PropertyName name) {
+      Entry<T> entry = find(name);
+      return entry == null ? null : entry.item();
+    }
+
+
+    @Nullable Entry<T> find(PropertyName name) {
+      if (indexOfFirstWildcard(name) >= 0) {
+        // Rarely a name to look up has wildcards, it may match any name.
+        for (Entry<T> entry : this.entries) {
+          if (entry.name().equals(name)) return entry;
+        }
+        return null;
+      }
+      int size = name.getNumberOfElements();
+      Entry<T> found = this.names.get(keyOf(name, size));
+      if (this.wildcardNames.isEmpty()) return found;
+      for (int wildcard = 0; wildcard < size; wildcard++) {
+        List<Entry<T>> candidates = this.wildcardNames.get(new WildcardKey(keyOf(name, wildcard), size));
+        if (candidates == null) continue;
+        for (Entry<T> candidate : candidates) {
+          if (found != null && found.rank() <= candidate.rank()) break;
+          if (candidate.name().equals(name)) {
+            found = candidate;
+            break;
+          }
+        }
+      }
+      return found;
+    }
+
+
+    List<PropertyName> names() {
+      return this.entries.stream().map(Entry::name).toList();
+    }
+
+
+    /**
+     * @return all items, of the names that {@linkplain PropertyName#equals(Object) equal} each other, the first one
+     * is kept.
+     */
+    Map<PropertyName, T> asMap() {
+      Map<PropertyName, T> map = this.map;
+      if (map == null) {
+        Map<PropertyName, T> items = new HashMap<>();
+        this.entries.forEach(entry -> items.putIfAbsent(entry.name(), entry.item()));
+        map = Collections.unmodifiableMap(items);
+        this.map = map;
+      }
+      return map;
+    }
+
+
+    /**
+     * @return the first {@code size} elements of the name in uniform form, which are the same for equal names.
+     */
+    private static String keyOf(PropertyName name, int size) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < size; i++) {
+        if (i > 0) sb.append(SEPARATOR);
+        sb.append(name.getElement(i, UNIFORM));
+      }
+      return sb.toString();
+    }
+
+
+    record Entry<T>(int rank, PropertyName name, T item) {}
+
+
+    private record WildcardKey(String prefix, int numberOfElements) {}
+  }
+
+
+  /**
+   * Bloom filters of all names in a snapshot, a lookup of an unknown name is rejected by them, instead of probing the
+   * maps, and matching the names with wildcards.
+   * <p>
+   * A name with wildcards (e.g. {@code a[*].b}) matches names that are not in the filter (e.g. {@code a.x.b}),
+   * so the filters never reject names under the part before the first wildcard ({@code a}) of such a name.
+   */
+  private record KnownNames(
+      NameBloomFilter names,
+      @Nullable NameBloomFilter wildcardRoots,
+      boolean wildcardAtRoot
+  ) {
+    @SafeVarargs
+    static KnownNames of(Collection<PropertyName>... keySets) {
+      List<PropertyName> names = new ArrayList<>();
+      List<PropertyName> wildcardRoots = new ArrayList<>();
+      boolean wildcardAtRoot = false;
+      for (Collection<PropertyName> keys : keySets) {
+        for (PropertyName key : keys) {
+          int wildcard = indexOfFirstWildcard(key);
+          if (wildcard < 0) {
+            names.add(key);
+          } else if (wildcard == 0) {
+            wildcardAtRoot = true;
+          } else {
+            wildcardRoots.add(key.chop(wildcard));
+          }
+        }
+      }
+      return new KnownNames(NameBloomFilter.ofPropertyNames(names),
+          wildcardRoots.isEmpty() ? null : NameBloomFilter.ofPropertyNames(wildcardRoots), wildcardAtRoot);
+    }
+
+
+    boolean mightBeName(NameBloomFilter.Probe probe) {
+      return probe.getNumberOfElements() == 0 || mightBeName(probe, probe.getNumberOfElements());
+    }
+
+
+    /**
+     * @return false if the first {@code size} elements of the name is known not to be a name in the snapshot.
+     */
+    boolean mightBeName(NameBloomFilter.Probe probe, int size) {
+      return names.mightContainName(probe, size) || mightMatchWildcard(probe);
+    }
+
+
+    boolean mightBeNameOrPrefix(NameBloomFilter.Probe probe) {
+      return names.mightContainNameOrPrefix(probe) || mightMatchWildcard(probe);
+    }
+
+
+    private boolean mightMatchWildcard(NameBloomFilter.Probe probe) {
+      return wildcardAtRoot || wildcardRoots != null && wildcardRoots.mightContain(probe);
+    }
+  }
+
+
+  private static int indexOfFirstWildcard(PropertyName name) {
+    for (int i = 0; i < name.getNumberOfElements(); i++) {
+      if (name.isAnyNonNumericIndex(i) || name.isAnyNumericIndex(i)) return i;
+    }
+    return -1;
   }
 }
@@ -26,8 +26,17 @@ public class ConfigurationMetadataIndex extends MetadataIndexBase {
 
 
   public ConfigurationMetadataIndex(@NotNull FileMetadataSource source, @NotNull Project project) throws IOException {
+    this(source, source.getContent(), project);
+  }
+
+
+  /**
+   * Create index from the metadata that has been read from the source.
+   */
+  public ConfigurationMetadataIndex(
+      @NotNull FileMetadataSource source, @NotNull ConfigurationMetadata metadata, @NotNull Project project) {
     super(project);
-    add(source.getPresentation(), source.getContent());
+    add(source.getPresentation(), metadata);
     this.source = source;
   }
 
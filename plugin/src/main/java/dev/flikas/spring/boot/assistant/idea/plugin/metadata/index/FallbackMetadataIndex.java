@@ -0,0 +1,176 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import com.intellij.openapi.project.Project;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A view of two indexes, lookups are answered by the primary one, and by the fallback one if the primary one has
+ * nothing, as if they were merged into an {@link AggregatedMetadataIndex} in that order.
+ * <p>
+ * Nothing is merged or copied, so it is cheap to create a new one whenever either of them is replaced, e.g. the shared
+ * index of metadata files in front of the index of a module's sources, which is replaced after the sources changed.
+ */
+public final class FallbackMetadataIndex implements MetadataIndex {
+  private final MetadataIndex primary;
+  private final MetadataIndex fallback;
+
+
+  public FallbackMetadataIndex(@NotNull MetadataIndex primary, @NotNull MetadataIndex fallback) {
+    this.primary = primary;
+    this.fallback = fallback;
+  }
+
+
+  @Override
+  public boolean isEmpty() {
+    return primary.isEmpty() && fallback.isEmpty();
+  }
+
+
+  @Override
+  public @NotNull Project project() {
+    return primary.project();
+  }
+
+
+  @Override
+  public @NotNull List<MetadataSource> getSource() {
+    return Stream.concat(primary.getSource().stream(), fallback.getSource().stream()).distinct().toList();
+  }
+
+
+  @Override
+  public @NotNull Map<PropertyName, MetadataGroup> getGroups() {
+    return new FallbackMap<>(primary.getGroups(), fallback.getGroups());
+  }
+
+
+  @Override
+  public @NotNull Map<PropertyName, MetadataProperty> getProperties() {
+    return new FallbackMap<>(primary.getProperties(), fallback.getProperties());
+  }
+
+
+  @Override
+  public @NotNull Map<PropertyName, MetadataHint> getHints() {
+    return new FallbackMap<>(primary.getHints(), fallback.getHints());
+  }
+
+
+  @Override
+  public @Nullable MetadataGroup getGroup(String name) {
+    return lookup(index -> index.getGroup(name));
+  }
+
+
+  @Override
+  public @Nullable MetadataProperty getProperty(String name) {
+    return lookup(index -> index.getProperty(name));
+  }
+
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Same as {@link AggregatedMetadataIndex}, the primary index wins if it has any parent property, even if the
+   * fallback one has a nearer one.
+   */
+  @Override
+  public @Nullable MetadataProperty getNearestParentProperty(String name) {
+    return lookup(index -> index.getNearestParentProperty(name));
+  }
+
+
+  @Override
+  public @Nullable MetadataHint getHint(String name) {
+    return lookup(index -> index.getHint(name));
+  }
+
+
+  @Override
+  public @Nullable MetadataItem getPropertyOrGroup(String name) {
+    return lookup(index -> index.getPropertyOrGroup(name));
+  }
+
+
+  @Override
+  public @Nullable NameTreeNode findInNameTrie(String prefix) {
+    List<NameTreeNode> nodes = new ArrayList<>(2);
+    NameTreeNode node = primary.findInNameTrie(prefix);
+    if (node != null) nodes.add(node);
+    node = fallback.findInNameTrie(prefix);
+    if (node != null) nodes.add(node);
+    return MergedNameTreeNode.of(nodes);
+  }
+
+
+  private <T> @Nullable T lookup(Function<MetadataIndex, T> lookup) {
+    T item = lookup.apply(primary);
+    return item != null ? item : lookup.apply(fallback);
+  }
+
+
+  /**
+   * A view of two maps, in which the entries of the primary map win.
+   */
+  private static final class FallbackMap<V> extends AbstractMap<PropertyName, V> {
+    private final Map<PropertyName, V> primary;
+    private final Map<PropertyName, V> fallback;
+
+
+    private FallbackMap(Map<PropertyName, V> primary, Map<PropertyName, V> fallback) {
+      this.primary = primary;
+      this.fallback = fallback;
+    }
+
+
+    @Override
+    public V get(Object key) {
+      V value = primary.get(key);
+      return value != null ? value : fallback.get(key);
+    }
+
+
+    @Override
+    public boolean containsKey(Object key) {
+      return primary.containsKey(key) || fallback.containsKey(key);
+    }
+
+
+    @Override
+    public boolean isEmpty() {
+      return primary.isEmpty() && fallback.isEmpty();
+    }
+
+
+    @Override
+    public @NotNull Set<Entry<PropertyName, V>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public @NotNull Iterator<Entry<PropertyName, V>> iterator() {
+          return Stream.concat(primary.entrySet().stream(),
+              fallback.entrySet().stream().filter(e -> !primary.containsKey(e.getKey()))).iterator();
+        }
+
+
+        @Override
+        public int size() {
+          return primary.size()
+              + (int) fallback.keySet().stream().filter(k -> !primary.containsKey(k)).count();
+        }
+      };
+    }
+  }
+}
@@ -1,18 +1,20 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
 
-import com.google.gson.Gson;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadata;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadataCache;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadataReader;
 import lombok.Getter;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
 @SuppressWarnings("LombokGetterMayBeUsed")
 public class FileMetadataSource extends AbstractMetadataSource {
-  private static final ThreadLocal<Gson> gson = ThreadLocal.withInitial(Gson::new);
   @Getter private VirtualFile source;
 
 
@@ -51,11 +53,31 @@ public class FileMetadataSource extends AbstractMetadataSource {
   }
 
 
+  /**
+   * Read the metadata from the source file.
+   * <p>
+   * Files in libraries will not change, so the parsed result is cached persistently,
+   * see {@link ConfigurationMetadataCache}.
+   */
   public ConfigurationMetadata getContent() throws IOException {
-    try (Reader reader = new InputStreamReader(source.getInputStream(), source.getCharset())) {
-      ConfigurationMetadata metadata = gson.get().fromJson(reader, ConfigurationMetadata.class);
-      markSynchronized();
-      return metadata;
+    byte[] content = source.contentsToByteArray();
+    ConfigurationMetadata metadata;
+    if (source.isInLocalFileSystem()) {
+      metadata = parse(content);
+    } else {
+      metadata = ConfigurationMetadataCache.getInstance().computeIfAbsent(content, () -> parse(content));
+    }
+    markSynchronized();
+    return metadata;
+  }
+
+
+  private ConfigurationMetadata parse(byte[] content) throws IOException {
+    long start = MetadataStatistics.start();
+    try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), source.getCharset())) {
+      return ConfigurationMetadataReader.read(reader);
+    } finally {
+      MetadataStatistics.record(MetadataStatistics.Timer.PARSE_FILE, start);
     }
   }
 }
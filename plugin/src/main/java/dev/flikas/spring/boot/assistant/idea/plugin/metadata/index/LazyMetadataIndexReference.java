@@ -0,0 +1,27 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.misc.MutableReference;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A reference to an index that is not loaded until it is {@linkplain #dereference() dereferenced}.
+ * <p>
+ * {@link AggregatedMetadataIndex} does not dereference it until a lookup {@linkplain #mightContain may hit} it,
+ * so that metadata files that are never used are never loaded.
+ */
+public interface LazyMetadataIndexReference extends MutableReference<MetadataIndex> {
+  /**
+   * @return true if the index has been loaded, then it can be dereferenced without cost.
+   */
+  boolean isLoaded();
+
+  /**
+   * @return false if the index does not contain the name, nor any name under it.
+   */
+  boolean mightContain(@NotNull NameBloomFilter.Probe probe);
+
+  /**
+   * @return source of the index, which is known without loading it.
+   */
+  @NotNull MetadataSource getSource();
+}
@@ -0,0 +1,131 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A view of the nodes at the same path of several name trees, as if the trees were merged.
+ * <p>
+ * Nothing is copied, children are merged only when they are asked for, so a search costs only as much as the nodes
+ * it visits.
+ */
+final class MergedNameTreeNode implements NameTreeNode {
+  private final List<NameTreeNode> nodes;
+
+
+  private MergedNameTreeNode(List<NameTreeNode> nodes) {
+    this.nodes = nodes;
+  }
+
+
+  /**
+   * @param nodes nodes at the same path of different trees.
+   * @return null if there is no node, the node itself if there is only one, or a merged view of them.
+   */
+  @Nullable
+  static NameTreeNode of(List<? extends NameTreeNode> nodes) {
+    if (nodes.isEmpty()) return null;
+    if (nodes.size() == 1) return nodes.get(0);
+    List<NameTreeNode> flattened = new ArrayList<>(nodes.size());
+    for (NameTreeNode node : nodes) {
+      if (node instanceof MergedNameTreeNode merged) {
+        flattened.addAll(merged.nodes);
+      } else {
+        flattened.add(node);
+      }
+    }
+    return new MergedNameTreeNode(Collections.unmodifiableList(flattened));
+  }
+
+
+  @Override
+  public @NotNull String getKey() {
+    return nodes.get(0).getKey();
+  }
+
+
+  @Override
+  public @NotNull List<MetadataItem> getData() {
+    List<MetadataItem> data = null;
+    for (NameTreeNode node : nodes) {
+      List<MetadataItem> d = node.getData();
+      if (d.isEmpty()) continue;
+      if (data == null) {
+        data = d;
+      } else {
+        if (!(data instanceof ArrayList)) data = new ArrayList<>(data);
+        data.addAll(d);
+      }
+    }
+    return data == null ? List.of() : Collections.unmodifiableList(data);
+  }
+
+
+  @Override
+  public boolean isIndexed() {
+    for (NameTreeNode node : nodes) {
+      if (node.isIndexed()) return true;
+    }
+    return false;
+  }
+
+
+  @Override
+  public @Nullable NameTreeNode findChild(PropertyName name) {
+    if (name.isEmpty()) return this;
+    List<NameTreeNode> children = new ArrayList<>(nodes.size());
+    for (NameTreeNode node : nodes) {
+      NameTreeNode child = node.findChild(name);
+      if (child != null) children.add(child);
+    }
+    return of(children);
+  }
+
+
+  @Override
+  public @NotNull List<NameTreeNode> getChildren(@NotNull String keyPrefix) {
+    List<NameTreeNode> only = null;
+    Map<String, List<NameTreeNode>> childrenByKey = null;
+    for (NameTreeNode node : nodes) {
+      List<NameTreeNode> children = node.getChildren(keyPrefix);
+      if (children.isEmpty()) continue;
+      if (only == null && childrenByKey == null) {
+        // Most likely only one tree has the children, no need to merge.
+        only = children;
+        continue;
+      }
+      if (childrenByKey == null) {
+        childrenByKey = new TreeMap<>();
+        addTo(childrenByKey, only);
+        only = null;
+      }
+      addTo(childrenByKey, children);
+    }
+    if (childrenByKey != null) {
+      List<NameTreeNode> merged = new ArrayList<>(childrenByKey.size());
+      childrenByKey.values().forEach(l -> merged.add(of(l)));
+      return merged;
+    }
+    return only == null ? List.of() : only;
+  }
+
+
+  @Override
+  public String toString() {
+    return getKey();
+  }
+
+
+  private static void addTo(Map<String, List<NameTreeNode>> childrenByKey, List<NameTreeNode> children) {
+    for (NameTreeNode child : children) {
+      childrenByKey.computeIfAbsent(child.getKey(), k -> new ArrayList<>(2)).add(child);
+    }
+  }
+}
@@ -18,8 +18,11 @@ abstract class MetadataIndexBase implements MetadataIndex {
   protected final Map<PropertyName, MetadataGroupImpl> groups = new HashMap<>();
   protected final Map<PropertyName, MetadataProperty> properties = new HashMap<>();
   protected final Map<PropertyName, MetadataHintImpl> hints = new HashMap<>();
-  protected final NameTreeNode propertiesAndGroupsNameIndex = new NameTreeNode();
   protected final Project project;
+  /**
+   * Built from {@link #properties} and {@link #groups} on first use, as many indexes are never searched by name.
+   */
+  private volatile NameTrie propertiesAndGroupsNameIndex = null;
 
 
   protected MetadataIndexBase(Project project) {
@@ -101,15 +104,15 @@ abstract class MetadataIndexBase implements MetadataIndex {
   @Override
   public @Nullable NameTreeNode findInNameTrie(String parentPropertyName) {
     PropertyName key = PropertyName.adapt(parentPropertyName);
-    return this.propertiesAndGroupsNameIndex.findChild(key);
+    return getNameIndex().getRoot().findChild(key);
   }
 
 
   protected void add(ConfigurationMetadata.Property p) {
     MetadataPropertyImpl prop = new MetadataPropertyImpl(this, p);
     PropertyName key = PropertyName.of(p.getName());
+    checkNotEmpty(key);
     MetadataProperty old = this.properties.put(key, prop);
-    putIntoNameIndex(key, prop);
     if (old != null) {
       if (old instanceof HomonymProperties allo) {
         allo.add(getSource().toString(), prop);
@@ -118,7 +121,6 @@ abstract class MetadataIndexBase implements MetadataIndex {
           HomonymProperties allo = new HomonymProperties(getSource().toString(), old);
           allo.add(getSource().toString(), prop);
           this.properties.put(key, allo);
-          putIntoNameIndex(key, allo, old);
         }
       }
     }
@@ -127,12 +129,11 @@ abstract class MetadataIndexBase implements MetadataIndex {
 
   protected void add(ConfigurationMetadata.Group g) {
     PropertyName key = PropertyName.of(g.getName());
+    checkNotEmpty(key);
     MetadataGroupImpl group = new MetadataGroupImpl(this, g);
-    MetadataGroupImpl old = this.groups.put(key, group);
+    MetadataGroupImpl old = this.groups.putIfAbsent(key, group);
     if (old != null && !old.getMetadata().equals(g)) {
       LOG.warn("Duplicate group " + g.getName() + " in " + getSource() + ", ignored");
-    } else {
-      putIntoNameIndex(key, group);
     }
   }
 
@@ -176,19 +177,27 @@ abstract class MetadataIndexBase implements MetadataIndex {
   }
 
 
-  private void putIntoNameIndex(PropertyName key, MetadataItem value) {
-    if (key.isEmpty()) {
-      throw new IllegalArgumentException("Empty key is not acceptable");
+  private NameTrie getNameIndex() {
+    NameTrie nameIndex = this.propertiesAndGroupsNameIndex;
+    if (nameIndex == null) {
+      synchronized (this) {
+        nameIndex = this.propertiesAndGroupsNameIndex;
+        if (nameIndex == null) {
+          NameTrie.Builder builder = new NameTrie.Builder();
+          this.groups.forEach(builder::add);
+          this.properties.forEach(builder::add);
+          nameIndex = builder.build();
+          this.propertiesAndGroupsNameIndex = nameIndex;
+        }
+      }
     }
-    this.propertiesAndGroupsNameIndex.addChild(key, value);
+    return nameIndex;
   }
 
 
-  private void putIntoNameIndex(PropertyName key, MetadataItem newItem, MetadataItem oldItem) {
-    NameTreeNode child = this.propertiesAndGroupsNameIndex.findChild(key);
-    assert child != null;
-    boolean removed = child.getData().remove(oldItem);
-    assert removed;
-    child.getData().add(newItem);
+  private static void checkNotEmpty(PropertyName key) {
+    if (key.isEmpty()) {
+      throw new IllegalArgumentException("Empty key is not acceptable");
+    }
   }
 }
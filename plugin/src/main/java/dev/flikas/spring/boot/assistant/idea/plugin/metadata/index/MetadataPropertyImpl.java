@@ -22,6 +22,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
+import java.util.Map;
 import java.util.Optional;
 
 import static dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationPropertyName.Form.DASHED;
@@ -34,7 +35,10 @@ class MetadataPropertyImpl implements MetadataProperty {
   private final ConfigurationMetadata.Property metadata;
   @Getter(AccessLevel.PROTECTED)
   private final PropertyName propertyName;
-  private final PsiType propertyType;
+  /**
+   * Created on first use, most properties are never completed, inspected or documented.
+   */
+  private volatile PsiType propertyType = null;
 
   private volatile String renderedDocument = null;
 
@@ -43,11 +47,6 @@ class MetadataPropertyImpl implements MetadataProperty {
     this.index = index;
     this.metadata = metadata;
     this.propertyName = PropertyName.of(metadata.getName());
-    if (StringUtils.isBlank(metadata.getType())) {
-      this.propertyType = null;
-    } else {
-      this.propertyType = PsiTypeUtils.createTypeFromText(index.project(), metadata.getType());
-    }
   }
 
 
@@ -60,7 +59,7 @@ class MetadataPropertyImpl implements MetadataProperty {
 
   @Override
   public Optional<PsiClass> getType() {
-    return Optional.ofNullable(this.propertyType).map(PsiTypeUtils::resolveClassInType);
+    return getFullType().map(PsiTypeUtils::resolveClassInType);
   }
 
 
@@ -138,7 +137,16 @@ class MetadataPropertyImpl implements MetadataProperty {
 
   @Override
   public Optional<PsiType> getFullType() {
-    return Optional.ofNullable(this.propertyType).filter(t -> ReadAction.compute(t::isValid));
+    if (StringUtils.isBlank(metadata.getType())) {
+      return Optional.empty();
+    }
+    PsiType type = this.propertyType;
+    if (type == null || !ReadAction.compute(type::isValid)) {
+      // Creating type is idempotent, so it does no harm if it is created concurrently.
+      type = PsiTypeUtils.createTypeFromText(index.project(), metadata.getType());
+      this.propertyType = type;
+    }
+    return Optional.ofNullable(type).filter(t -> ReadAction.compute(t::isValid));
   }
 
 
@@ -150,8 +158,12 @@ class MetadataPropertyImpl implements MetadataProperty {
 
   @Override
   public Optional<MetadataHint> getHint() {
-    return Optional.ofNullable(
-        index.getHints().getOrDefault(propertyName, index.getHints().get(propertyName.append("values"))));
+    Map<PropertyName, MetadataHint> hints = index.getHints();
+    MetadataHint hint = hints.get(propertyName);
+    if (hint == null) {
+      hint = hints.get(propertyName.append("values"));
+    }
+    return Optional.ofNullable(hint);
   }
 
 
@@ -163,12 +175,21 @@ class MetadataPropertyImpl implements MetadataProperty {
 
   @Override
   public boolean canBind(@NotNull String key) {
+    return canBind(this, this.propertyName, key);
+  }
+
+
+  /**
+   * @param name the name of the property, which may be different from the name in its metadata.
+   */
+  static boolean canBind(@NotNull MetadataProperty property, @NotNull PropertyName name, @NotNull String key) {
     PropertyName keyName = PropertyName.adapt(key);
-    PsiType myType = getFullType().orElse(null);
-    return this.propertyName.equals(keyName)
+    PsiType myType = property.getFullType().orElse(null);
+    Project project = property.getIndex().project();
+    return name.equals(keyName)
         // A Map property can bind all sub-key-values.
-        || this.propertyName.isAncestorOf(keyName) && PsiTypeUtils.isValueMap(index.project(), myType)
-        || this.propertyName.isParentOf(keyName) && PsiTypeUtils.isMap(index.project(), myType);
+        || name.isAncestorOf(keyName) && PsiTypeUtils.isValueMap(project, myType)
+        || name.isParentOf(keyName) && PsiTypeUtils.isMap(project, myType);
   }
 
 
@@ -0,0 +1,496 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import com.intellij.openapi.project.Project;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadata;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.experimental.Delegate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationPropertyName.Form.UNIFORM;
+
+/**
+ * A view of a template index, whose names are relative, as if all names in it were under the mount point.
+ * <p>
+ * The same template (e.g. metadata generated from a class) can be mounted at many places, nothing in it is copied,
+ * lookups are relativized and answered by the template, items found are wrapped with their mounted names.
+ * The name tree of the template is mounted as a sub-tree, under a path of the mount point.
+ */
+public class MountedMetadataIndex implements MetadataIndex {
+  private final PropertyName mountPoint;
+  private final MetadataIndex template;
+  private final ConcurrentMap<MetadataItem, MetadataItem> mountedItems = new ConcurrentHashMap<>();
+  private final ConcurrentMap<MetadataHint, MetadataHint> mountedHints = new ConcurrentHashMap<>();
+  /**
+   * Created on first use, only merging into an aggregated index needs all items.
+   */
+  private volatile Map<PropertyName, MetadataGroup> groups = null;
+  private volatile Map<PropertyName, MetadataProperty> properties = null;
+  private volatile Map<PropertyName, MetadataHint> hints = null;
+
+
+  /**
+   * @param template index whose names are relative to the mount point.
+   */
+  public MountedMetadataIndex(@NotNull PropertyName mountPoint, @NotNull MetadataIndex template) {
+    this.mountPoint = mountPoint;
+    this.template = template;
+  }
+
+
+  @Override
+  public boolean isEmpty() {
+    return template.isEmpty();
+  }
+
+
+  @Override
+  public @NotNull Project project() {
+    return template.project();
+  }
+
+
+  @Override
+  public @NotNull List<MetadataSource> getSource() {
+    return template.getSource();
+  }
+
+
+  @Override
+  public @NotNull Map<PropertyName, MetadataGroup> getGroups() {
+    Map<PropertyName, MetadataGroup> groups = this.groups;
+    if (groups == null) {
+      groups = mountAll(template.getGroups(), this::mount);
+      this.groups = groups;
+    }
+    return groups;
+  }
+
+
+  @Override
+  public @NotNull Map<PropertyName, MetadataProperty> getProperties() {
+    Map<PropertyName, MetadataProperty> properties = this.properties;
+    if (properties == null) {
+      properties = mountAll(template.getProperties(), this::mount);
+      this.properties = properties;
+    }
+    return properties;
+  }
+
+
+  @Override
+  public @NotNull Map<PropertyName, MetadataHint> getHints() {
+    Map<PropertyName, MetadataHint> hints = this.hints;
+    if (hints == null) {
+      hints = mountAll(template.getHints(), this::mount);
+      this.hints = hints;
+    }
+    return hints;
+  }
+
+
+  @Override
+  public @Nullable MetadataGroup getGroup(String name) {
+    PropertyName relative = relativize(name);
+    return relative == null ? null : mount(template.getGroup(relative.toString()));
+  }
+
+
+  @Override
+  public @Nullable MetadataProperty getProperty(String name) {
+    PropertyName relative = relativize(name);
+    return relative == null ? null : mount(template.getProperty(relative.toString()));
+  }
+
+
+  @Override
+  public @Nullable MetadataProperty getNearestParentProperty(String name) {
+    PropertyName relative = relativize(name);
+    return relative == null ? null : mount(template.getNearestParentProperty(relative.toString()));
+  }
+
+
+  @Override
+  public @Nullable MetadataHint getHint(String name) {
+    PropertyName relative = relativize(name);
+    return relative == null ? null : mount(template.getHint(relative.toString()));
+  }
+
+
+  @Override
+  public @Nullable MetadataItem getPropertyOrGroup(String name) {
+    PropertyName relative = relativize(name);
+    return relative == null ? null : mount(template.getPropertyOrGroup(relative.toString()));
+  }
+
+
+  @Override
+  public @Nullable NameTreeNode findInNameTrie(String prefix) {
+    PropertyName key = PropertyName.adapt(prefix);
+    if (mountPoint.isEmpty()) {
+      NameTreeNode root = template.findInNameTrie("");
+      return root == null ? null : new TemplateNode(this, root, null).findChild(key);
+    }
+    return new PathNode(this, 0).findChild(key);
+  }
+
+
+  @Override
+  public String toString() {
+    return mountPoint + " -> " + template;
+  }
+
+
+  /**
+   * @return the name relative to the mount point, or null if the name is not under the mount point.
+   */
+  private @Nullable PropertyName relativize(String name) {
+    PropertyName key = PropertyName.adapt(name);
+    if (!mountPoint.isAncestorOf(key)) return null;
+    return key.subName(mountPoint.getNumberOfElements());
+  }
+
+
+  private <T> Map<PropertyName, T> mountAll(Map<PropertyName, T> relative, Function<T, T> mounter) {
+    if (relative.isEmpty()) return Map.of();
+    Map<PropertyName, T> mounted = new HashMap<>(relative.size() * 4 / 3 + 1);
+    relative.forEach((name, item) -> mounted.put(mountPoint.append(name.toString()), mounter.apply(item)));
+    return Collections.unmodifiableMap(mounted);
+  }
+
+
+  private @Nullable MetadataItem mount(@Nullable MetadataItem item) {
+    if (item instanceof MetadataProperty property) {
+      return mount(property);
+    } else if (item instanceof MetadataGroup group) {
+      return mount(group);
+    } else {
+      return item;
+    }
+  }
+
+
+  private @Nullable MetadataProperty mount(@Nullable MetadataProperty property) {
+    if (property == null) return null;
+    return (MetadataProperty) mountedItems.computeIfAbsent(property, p -> new MountedProperty(this, property));
+  }
+
+
+  private @Nullable MetadataGroup mount(@Nullable MetadataGroup group) {
+    if (group == null) return null;
+    return (MetadataGroup) mountedItems.computeIfAbsent(group, g -> new MountedGroup(this, group));
+  }
+
+
+  private @Nullable MetadataHint mount(@Nullable MetadataHint hint) {
+    if (hint == null) return null;
+    return mountedHints.computeIfAbsent(hint, h -> new MountedHint(this, hint));
+  }
+
+
+  /**
+   * A node on the path of the mount point, which has only one child, the next node on the path.
+   *
+   * @param depth the number of elements of the mount point from the root to this node.
+   */
+  private record PathNode(MountedMetadataIndex index, int depth) implements NameTreeNode {
+    @Override
+    public @NotNull String getKey() {
+      return depth == 0 ? "" : NameTrie.keyOf(index.mountPoint, depth - 1);
+    }
+
+
+    @Override
+    public @NotNull List<MetadataItem> getData() {
+      return List.of();
+    }
+
+
+    @Override
+    public boolean isIndexed() {
+      return index.mountPoint.isAnyNonNumericIndex(depth) || index.mountPoint.isAnyNumericIndex(depth);
+    }
+
+
+    @Override
+    public @Nullable NameTreeNode findChild(PropertyName name) {
+      NameTreeNode node = this;
+      for (int i = 0; i < name.getNumberOfElements(); i++) {
+        if (!(node instanceof PathNode path)) {
+          // Reached the mount point, the rest is in the template.
+          return node.findChild(name.subName(i));
+        }
+        if (!path.matches(name, i)) return null;
+        node = path.next();
+        if (node == null) return null;
+      }
+      return node;
+    }
+
+
+    @Override
+    public @NotNull List<NameTreeNode> getChildren(@NotNull String keyPrefix) {
+      NameTreeNode next = next();
+      return next != null && next.getKey().startsWith(keyPrefix) ? List.of(next) : List.of();
+    }
+
+
+    @Override
+    public String toString() {
+      return getKey();
+    }
+
+
+    /**
+     * @return whether the element of the name can be the child of this node, in the same way as {@link NameTrie}.
+     */
+    private boolean matches(PropertyName name, int elementIndex) {
+      PropertyName mountPoint = index.mountPoint;
+      if (mountPoint.isAnyNonNumericIndex(depth)) return true;
+      if (mountPoint.isAnyNumericIndex(depth)) return name.isNumericIndex(elementIndex);
+      return mountPoint.getElement(depth, UNIFORM).equals(name.getElement(elementIndex, UNIFORM));
+    }
+
+
+    private @Nullable NameTreeNode next() {
+      if (depth + 1 < index.mountPoint.getNumberOfElements()) {
+        return new PathNode(index, depth + 1);
+      }
+      NameTreeNode root = index.template.findInNameTrie("");
+      return root == null ? null : new TemplateNode(index, root, NameTrie.keyOf(index.mountPoint, depth));
+    }
+  }
+
+
+  /**
+   * A node of the template's name tree, whose items are mounted.
+   *
+   * @param key the key of the node, null for the key of the template node; the root of the template is keyed by the
+   *            last element of the mount point.
+   */
+  private record TemplateNode(MountedMetadataIndex index, NameTreeNode node, @Nullable String key)
+      implements NameTreeNode {
+    @Override
+    public @NotNull String getKey() {
+      return key != null ? key : node.getKey();
+    }
+
+
+    @Override
+    public @NotNull List<MetadataItem> getData() {
+      List<MetadataItem> data = node.getData();
+      return data.isEmpty() ? data : data.stream().map(index::mount).toList();
+    }
+
+
+    @Override
+    public boolean isIndexed() {
+      return node.isIndexed();
+    }
+
+
+    @Override
+    public @Nullable NameTreeNode findChild(PropertyName name) {
+      if (name.isEmpty()) return this;
+      NameTreeNode child = node.findChild(name);
+      return child == null ? null : new TemplateNode(index, child, null);
+    }
+
+
+    @Override
+    public @NotNull List<NameTreeNode> getChildren(@NotNull String keyPrefix) {
+      return node.getChildren(keyPrefix).stream()
+          .<NameTreeNode>map(child -> new TemplateNode(index, child, null))
+          .toList();
+    }
+
+
+    @Override
+    public String toString() {
+      return getKey();
+    }
+  }
+
+
+  /**
+   * Methods of a mounted item that depend on its name.
+   */
+  private interface NameDependent {
+    @NotNull String getNameStr();
+
+    @NotNull PropertyName getName();
+
+    MetadataIndex getIndex();
+  }
+
+
+  @EqualsAndHashCode(of = {"name", "property"})
+  @ToString(of = {"name", "property"})
+  private static class MountedProperty implements MetadataProperty {
+    private final MountedMetadataIndex index;
+    private final PropertyName name;
+    @Delegate(excludes = {NameDependent.class, PropertyNameDependent.class})
+    private final MetadataProperty property;
+    private volatile ConfigurationMetadata.Property metadata = null;
+
+
+    MountedProperty(MountedMetadataIndex index, MetadataProperty property) {
+      this.index = index;
+      this.name = index.mountPoint.append(property.getNameStr());
+      this.property = property;
+    }
+
+
+    @Override
+    public @NotNull String getNameStr() {
+      return name.toString();
+    }
+
+
+    @Override
+    public @NotNull PropertyName getName() {
+      return name;
+    }
+
+
+    @Override
+    public MetadataIndex getIndex() {
+      return index;
+    }
+
+
+    @Override
+    public boolean canBind(@NotNull String key) {
+      return MetadataPropertyImpl.canBind(this, name, key);
+    }
+
+
+    @Override
+    public ConfigurationMetadata.Property getMetadata() {
+      ConfigurationMetadata.Property metadata = this.metadata;
+      if (metadata == null) {
+        ConfigurationMetadata.Property relative = property.getMetadata();
+        metadata = new ConfigurationMetadata.Property();
+        metadata.setName(getNameStr());
+        metadata.setType(relative.getType());
+        metadata.setDescription(relative.getDescription());
+        metadata.setSourceType(relative.getSourceType());
+        metadata.setDefaultValue(relative.getDefaultValue());
+        metadata.setDeprecation(relative.getDeprecation());
+        this.metadata = metadata;
+      }
+      return metadata;
+    }
+
+
+    private interface PropertyNameDependent {
+      boolean canBind(@NotNull String key);
+
+      ConfigurationMetadata.Property getMetadata();
+    }
+  }
+
+
+  @EqualsAndHashCode(of = {"name", "group"})
+  @ToString(of = {"name", "group"})
+  private static class MountedGroup implements MetadataGroup {
+    private final MountedMetadataIndex index;
+    private final PropertyName name;
+    @Delegate(excludes = {NameDependent.class, GroupNameDependent.class})
+    private final MetadataGroup group;
+    private volatile ConfigurationMetadata.Group metadata = null;
+
+
+    MountedGroup(MountedMetadataIndex index, MetadataGroup group) {
+      this.index = index;
+      this.name = index.mountPoint.append(group.getNameStr());
+      this.group = group;
+    }
+
+
+    @Override
+    public @NotNull String getNameStr() {
+      return name.toString();
+    }
+
+
+    @Override
+    public @NotNull PropertyName getName() {
+      return name;
+    }
+
+
+    @Override
+    public MetadataIndex getIndex() {
+      return index;
+    }
+
+
+    @Override
+    public ConfigurationMetadata.Group getMetadata() {
+      ConfigurationMetadata.Group metadata = this.metadata;
+      if (metadata == null) {
+        ConfigurationMetadata.Group relative = group.getMetadata();
+        metadata = new ConfigurationMetadata.Group();
+        metadata.setName(getNameStr());
+        metadata.setType(relative.getType());
+        metadata.setDescription(relative.getDescription());
+        metadata.setSourceType(relative.getSourceType());
+        metadata.setSourceMethod(relative.getSourceMethod());
+        this.metadata = metadata;
+      }
+      return metadata;
+    }
+
+
+    private interface GroupNameDependent {
+      ConfigurationMetadata.Group getMetadata();
+    }
+  }
+
+
+  @EqualsAndHashCode(of = {"name", "hint"})
+  @ToString(of = {"name", "hint"})
+  private static class MountedHint implements MetadataHint {
+    private final PropertyName name;
+    @Delegate(excludes = HintNameDependent.class)
+    private final MetadataHint hint;
+    private volatile ConfigurationMetadata.Hint metadata = null;
+
+
+    MountedHint(MountedMetadataIndex index, MetadataHint hint) {
+      this.name = index.mountPoint.append(hint.getMetadata().getName());
+      this.hint = hint;
+    }
+
+
+    @Override
+    public ConfigurationMetadata.Hint getMetadata() {
+      ConfigurationMetadata.Hint metadata = this.metadata;
+      if (metadata == null) {
+        ConfigurationMetadata.Hint relative = hint.getMetadata();
+        metadata = new ConfigurationMetadata.Hint();
+        metadata.setName(name.toString());
+        metadata.setValues(relative.getValues());
+        metadata.setProviders(relative.getProviders());
+        this.metadata = metadata;
+      }
+      return metadata;
+    }
+
+
+    private interface HintNameDependent {
+      ConfigurationMetadata.Hint getMetadata();
+    }
+  }
+}
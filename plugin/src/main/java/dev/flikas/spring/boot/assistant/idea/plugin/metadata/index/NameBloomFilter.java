@@ -0,0 +1,201 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+import static dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationPropertyName.Form.UNIFORM;
+
+/**
+ * A compact, probabilistic set of names, e.g. the names defined in a metadata file, or all names of an index.
+ * <p>
+ * For a metadata file, {@link #mightContain(Probe)} never returns false for a name that may be found in the index of
+ * the file, including names of metadata generated from collection/map properties, which are not in the file,
+ * so it is safe to skip loading the file if it returns false.
+ * <p>
+ * A name to look up is hashed once into a {@link Probe}, which can be tested against many filters.
+ */
+public final class NameBloomFilter {
+  private static final int BITS_PER_ENTRY = 10;
+  private static final int NUMBER_OF_HASHES = 5;
+  /**
+   * Exact names are prefixed by this, to distinguish from prefixes of names.
+   */
+  private static final char NAME_MARK = '=';
+
+  private final long[] bits;
+  private final int numberOfBits;
+
+
+  private NameBloomFilter(int expectedEntries) {
+    this.numberOfBits = Math.max(64, expectedEntries * BITS_PER_ENTRY);
+    this.bits = new long[(this.numberOfBits + 63) / 64];
+  }
+
+
+  /**
+   * @param names names in {@linkplain PropertyName#adapt(String) adapted} form.
+   */
+  public static NameBloomFilter of(@NotNull Collection<String> names) {
+    // Names share most of their prefixes, so 2 entries per name is enough.
+    NameBloomFilter filter = new NameBloomFilter(names.size() * 2);
+    for (String name : names) {
+      filter.put(PropertyName.adapt(name));
+    }
+    return filter;
+  }
+
+
+  static NameBloomFilter ofPropertyNames(@NotNull Collection<PropertyName> names) {
+    NameBloomFilter filter = new NameBloomFilter(names.size() * 2);
+    for (PropertyName name : names) {
+      filter.put(name);
+    }
+    return filter;
+  }
+
+
+  /**
+   * @return false if the file defines neither the name, nor any name under it, nor any ancestor of it (a map or
+   * collection property may have generated metadata under it).
+   */
+  public boolean mightContain(@NotNull Probe probe) {
+    if (probe.hashes.length == 0) return true;
+    for (int i = 0; i < probe.hashes.length; i += 2) {
+      if (contains(probe.hashes[i], probe.hashes[i + 1])) return true;
+    }
+    return false;
+  }
+
+
+  /**
+   * @return false if neither the name nor any name under it is in this filter.
+   */
+  public boolean mightContainNameOrPrefix(@NotNull Probe probe) {
+    return probe.hashes.length == 0 || contains(probe.hashes[0], probe.hashes[1]);
+  }
+
+
+  /**
+   * @return false if the first {@code size} elements of the name is not a name in this filter.
+   */
+  public boolean mightContainName(@NotNull Probe probe, int size) {
+    int i = (probe.getNumberOfElements() - size + 1) * 2;
+    return contains(probe.hashes[i], probe.hashes[i + 1]);
+  }
+
+
+  private void put(PropertyName name) {
+    String[] keys = prefixKeys(name);
+    if (keys.length == 0) return;
+    put(NAME_MARK + keys[keys.length - 1]);
+    for (String key : keys) {
+      put(key);
+    }
+  }
+
+
+  private void put(String key) {
+    int h1 = key.hashCode();
+    int h2 = secondHash(key);
+    for (int i = 0; i < NUMBER_OF_HASHES; i++) {
+      int bit = Math.floorMod(h1 + i * h2, this.numberOfBits);
+      this.bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+
+  private boolean contains(int h1, int h2) {
+    for (int i = 0; i < NUMBER_OF_HASHES; i++) {
+      int bit = Math.floorMod(h1 + i * h2, this.numberOfBits);
+      if ((this.bits[bit >>> 6] & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+
+  /**
+   * Keys of the name and its ancestors, the key of the first {@code i + 1} elements at {@code i}.
+   * <p>
+   * Elements are in uniform form, because names that only differ in form (e.g. {@code a[b]} and {@code a.b},
+   * {@code a-b} and {@code ab}) are equal.
+   */
+  private static String[] prefixKeys(PropertyName name) {
+    String[] keys = new String[name.getNumberOfElements()];
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0) sb.append('.');
+      if (name.isAnyNonNumericIndex(i)) {
+        sb.append("[*]");
+      } else if (name.isAnyNumericIndex(i)) {
+        sb.append("[#]");
+      } else {
+        sb.append(name.getElement(i, UNIFORM));
+      }
+      keys[i] = sb.toString();
+    }
+    return keys;
+  }
+
+
+  private static int secondHash(String key) {
+    // FNV-1a, independent of String#hashCode
+    int h = 0x811c9dc5;
+    for (int i = 0; i < key.length(); i++) {
+      h ^= key.charAt(i);
+      h *= 0x01000193;
+    }
+    return h | 1;
+  }
+
+
+  /**
+   * Hashes of a name to look up, computed once and tested against many filters.
+   */
+  public static final class Probe {
+    private final PropertyName name;
+    /**
+     * Pairs of hashes, of the name itself, then of the name and its ancestors as exact names.
+     */
+    private final int[] hashes;
+
+
+    private Probe(PropertyName name) {
+      this.name = name;
+      if (name.isEmpty()) {
+        // Everything is under the root.
+        this.hashes = new int[0];
+        return;
+      }
+      String[] keys = prefixKeys(name);
+      int n = keys.length;
+      this.hashes = new int[(n + 1) * 2];
+      setHashes(0, keys[n - 1]);
+      for (int i = n; i > 0; i--) {
+        setHashes(n - i + 1, NAME_MARK + keys[i - 1]);
+      }
+    }
+
+
+    public static Probe of(@NotNull PropertyName name) {
+      return new Probe(name);
+    }
+
+
+    public @NotNull PropertyName getName() {
+      return this.name;
+    }
+
+
+    int getNumberOfElements() {
+      return this.hashes.length == 0 ? 0 : this.hashes.length / 2 - 1;
+    }
+
+
+    private void setHashes(int index, String key) {
+      this.hashes[index * 2] = key.hashCode();
+      this.hashes[index * 2 + 1] = secondHash(key);
+    }
+  }
+}
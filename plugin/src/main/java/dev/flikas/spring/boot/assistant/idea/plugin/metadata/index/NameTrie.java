@@ -0,0 +1,253 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import com.intellij.openapi.diagnostic.Logger;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.MetadataStrings;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import static dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationPropertyName.Form.UNIFORM;
+
+/**
+ * An immutable tree of names, stored in a few flat arrays instead of an object (and a map) per node.
+ * <p>
+ * Nodes are numbered in breadth-first order, with the children of a node sorted by key, so the children of a node
+ * are a consecutive range of node numbers, child lookups are binary searches in that range of {@link #keys},
+ * and children of the same key prefix are a consecutive sub-range.
+ */
+final class NameTrie {
+  private static final Logger LOG = Logger.getInstance(NameTrie.class);
+  private static final MetadataItem[] NO_DATA = new MetadataItem[0];
+  private static final byte NOT_INDEXED = 0;
+  private static final byte NUMERIC_INDEXED = 1;
+  private static final byte NON_NUMERIC_INDEXED = 2;
+  private static final String ANY_NUMERIC_INDEX = "#";
+  private static final String ANY_NON_NUMERIC_INDEX = "*";
+
+  /**
+   * Key of each node, the name element in uniform form.
+   */
+  private final String[] keys;
+  /**
+   * Children of node {@code n} are nodes from {@code childOffsets[n]} (inclusive) to {@code childOffsets[n + 1]}.
+   */
+  private final int[] childOffsets;
+  private final byte[] indexedTypes;
+  private final MetadataItem[][] data;
+
+
+  private NameTrie(String[] keys, int[] childOffsets, byte[] indexedTypes, MetadataItem[][] data) {
+    this.keys = keys;
+    this.childOffsets = childOffsets;
+    this.indexedTypes = indexedTypes;
+    this.data = data;
+  }
+
+
+  @NotNull
+  NameTreeNode getRoot() {
+    return new Node(this, 0);
+  }
+
+
+  /**
+   * @return key of the node for the element of the name, which is the element in uniform form, or a wildcard.
+   */
+  static String keyOf(PropertyName name, int elementIndex) {
+    if (name.isAnyNonNumericIndex(elementIndex)) {
+      return ANY_NON_NUMERIC_INDEX;
+    } else if (name.isAnyNumericIndex(elementIndex)) {
+      return ANY_NUMERIC_INDEX;
+    } else {
+      return name.getElement(elementIndex, UNIFORM);
+    }
+  }
+
+
+  private int findChild(int node, PropertyName name) {
+    int n = node;
+    for (int i = 0; i < name.getNumberOfElements(); i++) {
+      int from = childOffsets[n];
+      int to = childOffsets[n + 1];
+      if (from == to) return -1;
+      switch (indexedTypes[n]) {
+        case NON_NUMERIC_INDEXED -> n = from;
+        case NUMERIC_INDEXED -> {
+          if (!name.isNumericIndex(i)) return -1;
+          n = from;
+        }
+        default -> {
+          n = Arrays.binarySearch(keys, from, to, name.getElement(i, UNIFORM));
+          if (n < 0) return -1;
+        }
+      }
+    }
+    return n;
+  }
+
+
+  private List<NameTreeNode> getChildren(int node, String keyPrefix) {
+    int from = childOffsets[node];
+    int to = childOffsets[node + 1];
+    if (!keyPrefix.isEmpty()) {
+      int start = Arrays.binarySearch(keys, from, to, keyPrefix);
+      if (start < 0) start = -start - 1;
+      int end = start;
+      while (end < to && keys[end].startsWith(keyPrefix)) end++;
+      from = start;
+      to = end;
+    }
+    return new ChildList(this, from, to);
+  }
+
+
+  private record Node(NameTrie trie, int id) implements NameTreeNode {
+    @Override
+    public @NotNull String getKey() {
+      return trie.keys[id];
+    }
+
+
+    @Override
+    public @NotNull List<MetadataItem> getData() {
+      MetadataItem[] items = trie.data[id];
+      return items.length == 0 ? List.of() : Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+
+    @Override
+    public boolean isIndexed() {
+      return trie.indexedTypes[id] != NOT_INDEXED;
+    }
+
+
+    @Override
+    public @Nullable NameTreeNode findChild(PropertyName name) {
+      if (name.isEmpty()) return this;
+      int child = trie.findChild(id, name);
+      return child < 0 ? null : new Node(trie, child);
+    }
+
+
+    @Override
+    public @NotNull List<NameTreeNode> getChildren(@NotNull String keyPrefix) {
+      return trie.getChildren(id, keyPrefix);
+    }
+
+
+    @Override
+    public String toString() {
+      return trie.keys[id];
+    }
+  }
+
+
+  private static class ChildList extends AbstractList<NameTreeNode> {
+    private final NameTrie trie;
+    private final int from;
+    private final int to;
+
+
+    ChildList(NameTrie trie, int from, int to) {
+      this.trie = trie;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    public NameTreeNode get(int index) {
+      if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+      return new Node(trie, from + index);
+    }
+
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+
+
+  /**
+   * Collects names into a mutable tree, then {@linkplain #build() flattens} it into a {@link NameTrie}.
+   */
+  static class Builder {
+    private final BuilderNode root = new BuilderNode("");
+
+
+    Builder add(PropertyName name, MetadataItem item) {
+      BuilderNode node = root;
+      for (int i = 0; i < name.getNumberOfElements(); i++) {
+        String key = keyOf(name, i);
+        if (name.isAnyNonNumericIndex(i)) {
+          node.setIndexedType(NON_NUMERIC_INDEXED, key);
+        } else if (name.isAnyNumericIndex(i)) {
+          node.setIndexedType(NUMERIC_INDEXED, key);
+        }
+        node = node.child(key);
+      }
+      node.data.add(item);
+      return this;
+    }
+
+
+    NameTrie build() {
+      List<BuilderNode> nodes = new ArrayList<>();
+      nodes.add(root);
+      for (int i = 0; i < nodes.size(); i++) {
+        nodes.addAll(nodes.get(i).children.values());
+      }
+      int size = nodes.size();
+      String[] keys = new String[size];
+      int[] childOffsets = new int[size + 1];
+      byte[] indexedTypes = new byte[size];
+      MetadataItem[][] data = new MetadataItem[size][];
+      int offset = 1;
+      for (int i = 0; i < size; i++) {
+        BuilderNode node = nodes.get(i);
+        keys[i] = MetadataStrings.intern(node.key);
+        childOffsets[i] = offset;
+        offset += node.children.size();
+        indexedTypes[i] = node.indexedType;
+        data[i] = node.data.isEmpty() ? NO_DATA : node.data.toArray(NO_DATA);
+      }
+      childOffsets[size] = offset;
+      return new NameTrie(keys, childOffsets, indexedTypes, data);
+    }
+  }
+
+
+  private static class BuilderNode {
+    private final String key;
+    private final TreeMap<String, BuilderNode> children = new TreeMap<>();
+    private final List<MetadataItem> data = new ArrayList<>();
+    private byte indexedType = NOT_INDEXED;
+
+
+    BuilderNode(String key) {
+      this.key = key;
+    }
+
+
+    BuilderNode child(String key) {
+      return children.computeIfAbsent(key, BuilderNode::new);
+    }
+
+
+    void setIndexedType(byte indexedType, String key) {
+      this.indexedType = indexedType;
+      if (!children.isEmpty() && !children.keySet().equals(Collections.singleton(key))) {
+        LOG.warn("There should be at most one child of key \"" + key + "\", but children are: " + children.keySet());
+        children.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.FileMetadataSource;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadata;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Service that shares the parsed {@link ConfigurationMetadata} of the same metadata file between projects.
+ * <p>
+ * Microservice projects that are opened together usually depend on the same libraries, the metadata of a file
+ * is loaded only once and held until no project uses it. Each {@link #acquire(FileMetadataSource) acquire}
+ * must be paired with a {@link #release(Key) release}.
+ * <p>
+ * Only the parsed metadata is shared, the indexes built from it are bound to a project (and its PSI), so they are not.
+ */
+@Service(Service.Level.APP)
+final class ApplicationMetadataService {
+  private static final Logger LOG = Logger.getInstance(ApplicationMetadataService.class);
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+
+  static ApplicationMetadataService getInstance() {
+    return ApplicationManager.getApplication().getService(ApplicationMetadataService.class);
+  }
+
+
+  /**
+   * Get the metadata of the source's current content, load it if no one has loaded it yet.
+   *
+   * @return a handle for releasing the metadata, and the metadata itself.
+   */
+  @NotNull
+  Acquired acquire(@NotNull FileMetadataSource source) throws IOException {
+    Key key = Key.of(source.getSource());
+    Entry entry = this.entries.compute(key, (k, e) -> {
+      if (e == null) e = new Entry();
+      e.refCount++;
+      return e;
+    });
+    try {
+      return new Acquired(key, entry.getMetadata(source));
+    } catch (IOException | RuntimeException e) {
+      release(key);
+      throw e;
+    }
+  }
+
+
+  void release(@NotNull Key key) {
+    this.entries.computeIfPresent(key, (k, e) -> {
+      if (--e.refCount > 0) return e;
+      LOG.trace("Metadata of " + k.url() + " is not used anymore, evicted");
+      return null;
+    });
+  }
+
+
+  record Key(String url, long modificationStamp) {
+    static Key of(VirtualFile file) {
+      return new Key(file.getUrl(), file.getModificationStamp());
+    }
+  }
+
+
+  record Acquired(@NotNull Key key, @Nullable ConfigurationMetadata metadata) {}
+
+
+  private static class Entry {
+    /**
+     * Guarded by {@link ApplicationMetadataService#entries}.
+     */
+    private int refCount = 0;
+    private volatile boolean loaded = false;
+    private ConfigurationMetadata metadata;
+
+
+    @Nullable
+    ConfigurationMetadata getMetadata(FileMetadataSource source) throws IOException {
+      if (!loaded) {
+        synchronized (this) {
+          if (!loaded) {
+            this.metadata = source.getContent();
+            this.loaded = true;
+            return this.metadata;
+          }
+        }
+      }
+      // The content is loaded by another project, mark this project's source as up-to-date, too.
+      MetadataStatistics.increment(MetadataStatistics.Counter.SHARED_METADATA_HITS);
+      source.markSynchronized();
+      return this.metadata;
+    }
+  }
+}
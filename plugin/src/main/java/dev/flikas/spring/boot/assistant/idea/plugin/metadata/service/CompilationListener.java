@@ -3,24 +3,15 @@ package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
 import com.intellij.openapi.compiler.CompilationStatusListener;
 import com.intellij.openapi.compiler.CompileContext;
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleManager;
-import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.task.ModuleBuildTask;
 import com.intellij.task.ProjectTaskListener;
 import com.intellij.task.ProjectTaskManager;
-import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.MetadataFileIndex;
-import dev.flikas.spring.boot.assistant.idea.plugin.misc.ModuleRootUtils;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 
 @SuppressWarnings("UnstableApiUsage")
@@ -71,50 +62,6 @@ class CompilationListener implements CompilationStatusListener, ProjectTaskListe
 
 
   private void enqueueBackgroundReloadTask(Collection<Module> affectedModules) {
-    //The index recreates too late, we have to find the generated metadata files without the index.
-    new Task.Backgroundable(project, "Reloading spring configuration metadata") {
-      @Override
-      public void run(@NotNull ProgressIndicator indicator) {
-        indicator.pushState();
-        indicator.setIndeterminate(false);
-        List<VirtualFile> affectedClassRoots = new ArrayList<>();
-        double i = 0;
-        for (Module module : affectedModules) {
-          assert module.getProject().equals(project);   // The 2 topics we are listening are all project-level.
-          indicator.setText2(module.getName());
-          indicator.setFraction(i++ / affectedModules.size());
-          affectedClassRoots.addAll(Arrays.asList(ModuleRootUtils.getClassRootsWithoutLibraries(module)));
-        }
-        indicator.popState();
-        List<VirtualFile> newMetaFiles = affectedClassRoots.stream()
-            .map(MetadataFileIndex::findMetaFileInClassRoot)
-            .filter(Objects::nonNull)
-            .toList();
-        if (newMetaFiles.isEmpty()) return;
-        // Looks like the IDE won't reload the generated metadata file automatically,
-        // so we have to refresh it for use by IndexFromOneFile#reSync
-        newMetaFiles.forEach(vf -> vf.refresh(true, false));
-        i = 0;
-        for (Module module : affectedModules) {
-          indicator.setText2(module.getName());
-          indicator.setFraction(i++ / affectedModules.size());
-          refreshModuleAndDependencies(List.of(module), newMetaFiles);
-        }
-      }
-    }.queue();
-  }
-
-
-  private void refreshModuleAndDependencies(
-      Iterable<Module> modules, Collection<VirtualFile> additionalMetaFiles) {
-    for (Module module : modules) {
-      ModuleMetadataServiceImpl mms = (ModuleMetadataServiceImpl) module.getServiceIfCreated(
-          ModuleMetadataService.class);
-      if (mms != null) {
-        mms.refreshMetadata(additionalMetaFiles);
-      }
-      refreshModuleAndDependencies(ModuleManager.getInstance(project).getModuleDependentModules(module),
-          additionalMetaFiles);
-    }
+    MetadataRefreshQueue.getInstance(project).refreshAfterBuild(affectedModules);
   }
 }
@@ -0,0 +1,218 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import com.intellij.codeInsight.AnnotationUtil;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.AnnotatedElementsSearch;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.AggregatedMetadataIndex;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.ConfigurationMetadataIndex;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataIndex;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadata;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dev.flikas.spring.boot.assistant.idea.plugin.misc.PsiTypeUtils.getCanonicalTextOfType;
+
+/**
+ * Finds {@code @ConfigurationProperties} classes and {@code @Bean} methods in the sources of a module and the modules
+ * it depends on by the java annotation index, and generates metadata from them, so that a module has metadata of
+ * the classes in the project without the {@code spring-boot-configuration-processor}, or before they are compiled.
+ * <p>
+ * Sources are rescanned in background after a file that may define configuration properties has
+ * {@linkplain ConfigurationPropertiesTracker changed}, lookups use the last scanned index until the rescan is done.
+ * A rescan is canceled and restarted by every write action, so it runs only after typing pauses, and only files that
+ * have changed since last scan are introspected again.
+ */
+class ConfigurationPropertiesScanner {
+  private static final Logger LOG = Logger.getInstance(ConfigurationPropertiesScanner.class);
+  private static final String CONFIGURATION_PROPERTIES =
+      "org.springframework.boot.context.properties.ConfigurationProperties";
+  private static final String BEAN = "org.springframework.context.annotation.Bean";
+
+  private final Module module;
+  private final Project project;
+  private volatile MetadataIndex index;
+  private volatile long scannedModificationCount = -1;
+  private volatile long scheduledModificationCount = -1;
+  /**
+   * Guarded by this.
+   */
+  private Map<VirtualFile, ScannedFile> scannedFiles = Map.of();
+
+
+  ConfigurationPropertiesScanner(@NotNull Module module) {
+    this.module = module;
+    this.project = module.getProject();
+    this.index = MetadataIndex.empty(this.project);
+  }
+
+
+  /**
+   * @return metadata generated from the sources, the last scanned one if the sources have changed since then,
+   * a rescan is started in background in that case.
+   */
+  @NotNull
+  MetadataIndex getIndex() {
+    long modificationCount = getModificationCount();
+    if (modificationCount != this.scannedModificationCount && modificationCount != this.scheduledModificationCount
+        && !this.module.isDisposed()) {
+      this.scheduledModificationCount = modificationCount;
+      ReadAction.nonBlocking(this::scanIfChanged)
+          .inSmartMode(this.project)
+          .expireWhen(this.module::isDisposed)
+          // A new one replaces the pending one of this module.
+          .coalesceBy(this)
+          .submit(AppExecutorUtil.getAppExecutorService())
+          .onSuccess(changed -> {
+            // Re-highlight the opened files with the new metadata.
+            if (changed) DaemonCodeAnalyzer.getInstance(this.project).restart();
+          })
+          // Try again on next lookup.
+          .onError(e -> this.scheduledModificationCount = -1);
+    }
+    return this.index;
+  }
+
+
+  /**
+   * Should be called in a smart mode read action.
+   *
+   * @return true if the index is changed.
+   */
+  boolean scanIfChanged() {
+    // Lock in the read action, as other threads may be waiting for the lock in read actions.
+    synchronized (this) {
+      long modificationCount = getModificationCount();
+      if (modificationCount == this.scannedModificationCount) return false;
+      boolean changed = scan();
+      this.scannedModificationCount = modificationCount;
+      return changed;
+    }
+  }
+
+
+  private long getModificationCount() {
+    return this.project.getService(ConfigurationPropertiesTracker.class).getModificationCount()
+        + ProjectRootManager.getInstance(this.project).getModificationCount();
+  }
+
+
+  private boolean scan() {
+    long start = MetadataStatistics.start();
+    Map<VirtualFile, List<PsiModifierListOwner>> sources = findSources();
+    this.project.getService(ConfigurationPropertiesTracker.class).addScannedFiles(sources.keySet());
+    Map<VirtualFile, ScannedFile> scannedFiles = new HashMap<>();
+    boolean changed = !sources.keySet().equals(this.scannedFiles.keySet());
+    for (Map.Entry<VirtualFile, List<PsiModifierListOwner>> entry : sources.entrySet()) {
+      PsiFile psiFile = entry.getValue().get(0).getContainingFile();
+      ScannedFile scanned = this.scannedFiles.get(entry.getKey());
+      if (scanned == null || scanned.modificationStamp() != psiFile.getModificationStamp()) {
+        List<MetadataIndex> indexes = new ArrayList<>();
+        entry.getValue().forEach(source -> createIndexes(source, indexes));
+        scanned = new ScannedFile(psiFile.getModificationStamp(), indexes);
+        changed = true;
+      }
+      scannedFiles.put(entry.getKey(), scanned);
+    }
+    this.scannedFiles = scannedFiles;
+    if (changed) {
+      AggregatedMetadataIndex index = new AggregatedMetadataIndex();
+      scannedFiles.values().forEach(scanned -> scanned.indexes().forEach(index::addLast));
+      index.addDependency(this.project.getService(ProjectClassMetadataService.class));
+      this.index = index;
+      LOG.debug("Scanned " + scannedFiles.size() + " files of module " + this.module.getName());
+    }
+    MetadataStatistics.record(MetadataStatistics.Timer.SCAN_SOURCES, start);
+    return changed;
+  }
+
+
+  /**
+   * @return annotated classes and methods in the production sources of the module and its dependency modules,
+   * by the files that contain them.
+   */
+  private Map<VirtualFile, List<PsiModifierListOwner>> findSources() {
+    Map<VirtualFile, List<PsiModifierListOwner>> sources = new LinkedHashMap<>();
+    PsiClass annotation = JavaPsiFacade.getInstance(this.project).findClass(CONFIGURATION_PROPERTIES,
+        GlobalSearchScope.moduleWithDependenciesAndLibrariesScope(this.module, false));
+    if (annotation == null) return sources;
+    // Classes of dependency modules are not in the metadata files before the modules are compiled.
+    GlobalSearchScope scope = GlobalSearchScope.moduleWithDependenciesScope(this.module);
+    for (PsiClass psiClass : AnnotatedElementsSearch.searchPsiClasses(annotation, scope).findAll()) {
+      addSource(sources, psiClass);
+    }
+    for (PsiMethod method : AnnotatedElementsSearch.searchPsiMethods(annotation, scope).findAll()) {
+      if (method.hasAnnotation(BEAN)) addSource(sources, method);
+    }
+    return sources;
+  }
+
+
+  private void addSource(Map<VirtualFile, List<PsiModifierListOwner>> sources, PsiModifierListOwner source) {
+    PsiFile file = source.getContainingFile();
+    VirtualFile virtualFile = file == null ? null : file.getVirtualFile();
+    if (virtualFile == null || ProjectFileIndex.getInstance(this.project).isInTestSourceContent(virtualFile)) return;
+    sources.computeIfAbsent(virtualFile, f -> new ArrayList<>()).add(source);
+  }
+
+
+  /**
+   * Create the group of the source, and the properties generated from its type.
+   */
+  private void createIndexes(PsiModifierListOwner source, List<MetadataIndex> indexes) {
+    PsiAnnotation annotation = source.getAnnotation(CONFIGURATION_PROPERTIES);
+    if (annotation == null) return;
+    String prefix = AnnotationUtil.getStringAttributeValue(annotation, "prefix");
+    if (StringUtils.isBlank(prefix)) {
+      prefix = AnnotationUtil.getStringAttributeValue(annotation, "value");
+    }
+    PropertyName name = PropertyName.ofIfValid(prefix);
+    if (name == null || name.isEmpty()) return;
+    ConfigurationMetadata.Group group = new ConfigurationMetadata.Group();
+    group.setName(name.toString());
+    PsiType type;
+    if (source instanceof PsiClass psiClass) {
+      type = JavaPsiFacade.getElementFactory(this.project).createType(psiClass);
+      group.setSourceType(psiClass.getQualifiedName());
+    } else if (source instanceof PsiMethod method && method.getContainingClass() != null) {
+      type = method.getReturnType();
+      group.setSourceType(method.getContainingClass().getQualifiedName());
+      group.setSourceMethod(method.getName() + "()");
+    } else {
+      return;
+    }
+    if (type == null) return;
+    group.setType(getCanonicalTextOfType(type));
+    ConfigurationMetadata metadata = new ConfigurationMetadata();
+    metadata.setGroups(new ArrayList<>(List.of(group)));
+    indexes.add(new ConfigurationMetadataIndex(metadata, source, this.project));
+    this.project.getService(ProjectClassMetadataService.class).getMetadata(name.toString(), type)
+        .ifPresent(indexes::add);
+  }
+
+
+  private record ScannedFile(long modificationStamp, List<MetadataIndex> indexes) {}
+}
@@ -0,0 +1,113 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks changes of the java files that may define configuration properties for
+ * {@link ConfigurationPropertiesScanner}s, i.e. the files that have been scanned, and the files that mention the
+ * annotation, so that sources are rescanned only after such a file has changed, instead of after any java change.
+ * <p>
+ * Changes of the types of the properties are not tracked here, metadata generated from them is updated by
+ * {@link ProjectClassMetadataService}.
+ */
+@Service(Service.Level.PROJECT)
+final class ConfigurationPropertiesTracker extends SimpleModificationTracker implements Disposable {
+  private static final String ANNOTATION_SHORT_NAME = "ConfigurationProperties";
+  /**
+   * Files scanned by any module, files that are not scanned anymore cause nothing but a needless rescan.
+   */
+  private final Set<VirtualFile> scannedFiles = ConcurrentHashMap.newKeySet();
+
+
+  public ConfigurationPropertiesTracker(Project project) {
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new SourceChangeListener(), this);
+  }
+
+
+  void addScannedFiles(@NotNull Collection<VirtualFile> files) {
+    this.scannedFiles.addAll(files);
+  }
+
+
+  @Override
+  public void dispose() {
+    this.scannedFiles.clear();
+  }
+
+
+  private boolean isRelevant(@Nullable PsiElement element) {
+    // A directory is moved or deleted, with the files in it.
+    if (element instanceof PsiDirectory) return true;
+    PsiFile file = element instanceof PsiFile f ? f : element == null ? null : element.getContainingFile();
+    if (!(file instanceof PsiJavaFile)) return false;
+    VirtualFile virtualFile = file.getVirtualFile();
+    if (virtualFile != null && this.scannedFiles.contains(virtualFile)) return true;
+    // The annotation cannot be used without its short name, qualified or imported.
+    return StringUtil.contains(file.getViewProvider().getContents(), ANNOTATION_SHORT_NAME);
+  }
+
+
+  private class SourceChangeListener extends PsiTreeChangeAdapter {
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    private void afterChange(PsiTreeChangeEvent event) {
+      // A file is added to, removed from or moved between directories, or a change in a file.
+      PsiElement element = event.getParent() instanceof PsiDirectory || event.getParent() == null
+          ? event.getChild() : event.getParent();
+      if (element == null) element = event.getElement();
+      if (isRelevant(element)) incModificationCount();
+    }
+  }
+}
@@ -1,67 +1,250 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
 
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.AggregatedMetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.ConfigurationMetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.FileMetadataSource;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.LazyMetadataIndexReference;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataProperty;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.NameBloomFilter;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadata;
-import dev.flikas.spring.boot.assistant.idea.plugin.misc.MutableReference;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.MetadataFileIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.misc.PsiTypeUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * A container of a loaded metadata file, can auto-reload while the file has changed or removed.
+ * <p>
+ * Reloading is incremental: if the content is not changed actually (e.g. the file is regenerated by a compilation
+ * that changes nothing in metadata), the index is kept as is; otherwise, metadata generated from the types of
+ * collection/map properties is reused for properties whose name and type are not changed.
+ * <p>
+ * The file is not checked on every {@link #dereference()}, {@link ProjectMetadataService} marks the container
+ * {@linkplain #markOutdated() outdated} by VFS events of the file, then it is reloaded on next dereference.
+ * <p>
+ * The parsed metadata is shared with other projects through {@link ApplicationMetadataService},
+ * it is released when this container is disposed.
+ * <p>
+ * If {@linkplain #prepareLazyLoading() prepared}, the file is not loaded until a lookup may hit it, by the names
+ * in {@link MetadataFileIndex}.
  */
-class MetadataFileContainer implements MutableReference<MetadataIndex> {
+class MetadataFileContainer implements LazyMetadataIndexReference, Disposable {
   private static final Logger LOG = Logger.getInstance(ProjectMetadataService.class);
   @NotNull private final FileMetadataSource source;
   @NotNull private final Project project;
-  private MetadataIndex metadata;
+  private volatile MetadataIndex metadata;
+  private volatile boolean outdated = true;
+  private volatile boolean loaded = false;
+  @Nullable private volatile NameBloomFilter nameFilter;
+  private volatile boolean namesOutdated = false;
+  @Nullable private ConfigurationMetadata content;
+  @NotNull private Map<PropertyType, Optional<MetadataIndex>> propertyTypeIndexes = Map.of();
+  @Nullable private ApplicationMetadataService.Key acquiredKey;
 
 
   MetadataFileContainer(@NotNull VirtualFile metadataFile, @NotNull Project project) {
     this.source = new FileMetadataSource(metadataFile);
     this.project = project;
-    refresh();
   }
 
 
   @Override
   public @Nullable MetadataIndex dereference() {
-    refresh();
+    if (this.outdated) {
+      refresh();
+    }
     return this.metadata;
   }
 
 
+  /**
+   * The file, or any of its ancestors, has been changed, so it should be reloaded on next {@link #dereference()}.
+   */
+  void markOutdated() {
+    this.outdated = true;
+    // The names may have changed too, the filter is kept until they are read again, without it an unloaded file
+    // would be loaded by any lookup.
+    this.namesOutdated = this.nameFilter != null;
+    AggregatedMetadataIndex.referenceChanged();
+  }
+
+
+  /**
+   * Prepare for loading the file on demand, by the names in it.
+   * <p>
+   * Only files in libraries are loaded lazily, files in the project are likely to be used, and are changed frequently.
+   *
+   * @return false if the file should be loaded now, because it is in the project, or it has not been indexed.
+   */
+  boolean prepareLazyLoading() {
+    if (this.loaded || getFile().isInLocalFileSystem()) return false;
+    Set<String> names = readNames();
+    if (names == null || names.isEmpty()) return false;
+    this.nameFilter = NameBloomFilter.of(names);
+    this.namesOutdated = false;
+    MetadataStatistics.increment(MetadataStatistics.Counter.FILES_DEFERRED);
+    return true;
+  }
+
+
+  @Override
+  public boolean isLoaded() {
+    return this.loaded;
+  }
+
+
+  @Override
+  public boolean mightContain(@NotNull NameBloomFilter.Probe probe) {
+    if (this.namesOutdated && !this.loaded) updateNameFilter();
+    NameBloomFilter filter = this.nameFilter;
+    return filter == null || filter.mightContain(probe);
+  }
+
+
+  /**
+   * Read the names of the changed file again, the old filter is kept if the names cannot be read for now (dumb mode),
+   * or the file is not indexed anymore, it will be loaded by the first lookup that may hit the old names then.
+   */
+  private void updateNameFilter() {
+    Set<String> names = readNames();
+    if (names == null) return;
+    if (!names.isEmpty()) this.nameFilter = NameBloomFilter.of(names);
+    this.namesOutdated = false;
+  }
+
+
+  /**
+   * @return names in the file by {@link MetadataFileIndex}, or null if the index is not available for now.
+   */
+  @Nullable
+  private Set<String> readNames() {
+    VirtualFile file = getFile();
+    return ReadAction.compute(() -> {
+      if (DumbService.isDumb(this.project)) return null;
+      return file.isValid() ? MetadataFileIndex.getNames(file, this.project) : Set.of();
+    });
+  }
+
+
+  @Override
+  public @NotNull FileMetadataSource getSource() {
+    return this.source;
+  }
+
+
+  @NotNull
+  VirtualFile getFile() {
+    return this.source.getSource();
+  }
+
+
   @Override
   public synchronized void refresh() {
+    boolean onDemand = !this.loaded && this.nameFilter != null;
+    // Clear the flag before loading, so that a change during loading will cause another loading.
+    this.outdated = false;
+    MetadataIndex previous = this.metadata;
+    boolean succeeded = false;
+    try {
+      succeeded = reload();
+    } finally {
+      if (succeeded) {
+        this.loaded = true;
+        // Other aggregated indexes that contain this one should see it too.
+        if (this.metadata != previous) AggregatedMetadataIndex.referenceChanged();
+        if (onDemand) MetadataStatistics.increment(MetadataStatistics.Counter.FILES_LOADED_ON_DEMAND);
+      } else {
+        // Retry on next dereference if the loading is failed or canceled (e.g. by dumb mode),
+        // until then, the file is not loaded, the aggregated indexes should keep asking for it.
+        this.outdated = true;
+      }
+    }
+  }
+
+
+  /**
+   * @return false if failed to read the file.
+   */
+  private boolean reload() {
     if (!this.source.isValid()) {
       if (!this.source.tryReloadIfInvalid()) {
         this.metadata = null;
-        return;
+        this.content = null;
+        this.propertyTypeIndexes = Map.of();
+        releaseMetadata();
+        return true;
       }
-    } else if (!this.source.isChanged()) {
-      return;
+    } else if (!this.source.isChanged() && this.metadata != null) {
+      // Load it if it is not loaded yet, or the last loading has failed or been canceled.
+      return true;
     }
     try {
-      AggregatedMetadataIndex index = new AggregatedMetadataIndex(
-          new ConfigurationMetadataIndex(this.source, this.project));
+      ApplicationMetadataService.Acquired acquired = ApplicationMetadataService.getInstance().acquire(this.source);
+      releaseMetadata();
+      this.acquiredKey = acquired.key();
+      ConfigurationMetadata content = Objects.requireNonNullElseGet(acquired.metadata(), ConfigurationMetadata::new);
+      if (this.metadata != null && content.equals(this.content)) {
+        LOG.debug(this.source.getPresentation() + " is reloaded but not changed, keep the index");
+        return true;
+      }
+      ConfigurationMetadataIndex fileIndex = new ConfigurationMetadataIndex(this.source, content, this.project);
+      AggregatedMetadataIndex index = new AggregatedMetadataIndex(fileIndex);
       // Spring does not create metadata for types in collections, we should create it by ourselves and expand our index,
       // to better support code-completion, documentation, navigation, etc.
-      for (MetadataProperty property : index.getProperties().values()) {
-        resolvePropertyType(property).ifPresent(index::addFirst);
+      Map<PropertyType, Optional<MetadataIndex>> propertyTypeIndexes = new HashMap<>();
+      for (MetadataProperty property : fileIndex.getProperties().values()) {
+        PropertyType key = new PropertyType(property.getNameStr(), property.getMetadata().getType());
+        Optional<MetadataIndex> typeIndex = this.propertyTypeIndexes.get(key);
+        if (typeIndex == null) {
+          typeIndex = resolvePropertyType(property);
+        }
+        propertyTypeIndexes.put(key, typeIndex);
+        typeIndex.ifPresent(index::addFirst);
+      }
+      if (propertyTypeIndexes.values().stream().anyMatch(Optional::isPresent)) {
+        // Generated metadata changes while the classes are being edited.
+        index.addDependency(project.getService(ProjectClassMetadataService.class));
       }
       this.metadata = index;
+      this.content = content;
+      this.propertyTypeIndexes = propertyTypeIndexes;
+      return true;
     } catch (IOException e) {
       LOG.warn("Read metadata file " + this.source.getPresentation() + " failed", e);
+      return false;
+    }
+  }
+
+
+  @Override
+  public synchronized void dispose() {
+    this.outdated = false;
+    this.metadata = null;
+    this.content = null;
+    this.propertyTypeIndexes = Map.of();
+    releaseMetadata();
+  }
+
+
+  private void releaseMetadata() {
+    if (this.acquiredKey != null) {
+      ApplicationMetadataService.getInstance().release(this.acquiredKey);
+      this.acquiredKey = null;
     }
   }
 
@@ -80,4 +263,7 @@ class MetadataFileContainer implements MutableReference<MetadataIndex> {
   public String toString() {
     return "Metadata index form " + this.source.getPresentation();
   }
+
+
+  private record PropertyType(@NotNull String name, @Nullable String type) {}
 }
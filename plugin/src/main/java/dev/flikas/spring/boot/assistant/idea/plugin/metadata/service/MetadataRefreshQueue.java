@@ -0,0 +1,268 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.platform.backend.workspace.VirtualFileUrls;
+import com.intellij.platform.workspace.storage.url.VirtualFileUrl;
+import com.intellij.util.Alarm;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.MetadataFileIndex;
+import dev.flikas.spring.boot.assistant.idea.plugin.misc.ModuleRootUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The only place that schedules reloading of modules' metadata.
+ * <p>
+ * Requests within {@link #DEBOUNCE_MILLIS} are coalesced into one background task, in which every affected module is
+ * refreshed at most once, in the order of module dependencies (dependencies first). Requests that arrive while the
+ * task is running are handled by the same task after the current batch.
+ * <p>
+ * A steady stream of requests can not postpone the task for more than {@link #MAX_DELAY_MILLIS} after the first
+ * pending request.
+ */
+@Service(Service.Level.PROJECT)
+final class MetadataRefreshQueue implements Disposable {
+  private static final Logger LOG = Logger.getInstance(MetadataRefreshQueue.class);
+  private static final int DEBOUNCE_MILLIS = 500;
+  private static final int MAX_DELAY_MILLIS = 5000;
+
+  private final Project project;
+  private final Alarm alarm;
+  private final Object lock = new Object();
+  /**
+   * Modules that have been built, their output may contain new metadata files. Guarded by {@link #lock}.
+   */
+  private Set<Module> builtModules = new HashSet<>();
+  /**
+   * Modules that have new dependencies, and the class roots of them. Guarded by {@link #lock}.
+   */
+  private Map<Module, Set<VirtualFileUrl>> newClassRoots = new HashMap<>();
+  /**
+   * Guarded by {@link #lock}.
+   */
+  private boolean running = false;
+  /**
+   * When the earliest request that has not been drained arrived, or 0 if there is none. Guarded by {@link #lock}.
+   */
+  private long firstRequestTime = 0;
+
+
+  public MetadataRefreshQueue(Project project) {
+    this.project = project;
+    this.alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+  }
+
+
+  static MetadataRefreshQueue getInstance(Project project) {
+    return project.getService(MetadataRefreshQueue.class);
+  }
+
+
+  /**
+   * Refresh the modules, and modules that depend on them, after they have been built.
+   */
+  void refreshAfterBuild(@NotNull Collection<Module> modules) {
+    if (modules.isEmpty()) return;
+    synchronized (this.lock) {
+      this.builtModules.addAll(modules);
+    }
+    schedule();
+  }
+
+
+  /**
+   * Refresh the module after new dependencies, whose class roots are {@code classRoots}, are added to it.
+   */
+  void refreshNewDependencies(@NotNull Module module, @NotNull Collection<VirtualFileUrl> classRoots) {
+    if (classRoots.isEmpty()) return;
+    synchronized (this.lock) {
+      this.newClassRoots.computeIfAbsent(module, m -> new HashSet<>()).addAll(classRoots);
+    }
+    schedule();
+  }
+
+
+  @Override
+  public void dispose() {
+    // Parent disposable of the alarm.
+  }
+
+
+  private void schedule() {
+    if (this.alarm.isDisposed()) return;
+    int delay;
+    synchronized (this.lock) {
+      long now = System.currentTimeMillis();
+      if (this.firstRequestTime == 0) this.firstRequestTime = now;
+      delay = getDelay(this.firstRequestTime, now);
+    }
+    this.alarm.cancelAllRequests();
+    this.alarm.addRequest(this::startTask, delay);
+  }
+
+
+  /**
+   * @return delay of the task for a request that arrives at {@code now}, debounced but not beyond
+   * {@link #MAX_DELAY_MILLIS} after the earliest pending request.
+   */
+  static int getDelay(long firstRequestTime, long now) {
+    return (int) Math.max(0, Math.min(DEBOUNCE_MILLIS, firstRequestTime + MAX_DELAY_MILLIS - now));
+  }
+
+
+  /**
+   * @param dependents modules that depend on a module directly.
+   * @return the modules and the modules that depend on them directly or transitively, each only once.
+   */
+  static <M> Set<M> withDependents(@NotNull Collection<M> modules, @NotNull Function<M, Collection<M>> dependents) {
+    Queue<M> queue = new ArrayDeque<>(modules);
+    Set<M> visited = new LinkedHashSet<>();
+    while (!queue.isEmpty()) {
+      M module = queue.poll();
+      if (visited.add(module)) queue.addAll(dependents.apply(module));
+    }
+    return visited;
+  }
+
+
+  /**
+   * @param sortedModules all modules, sorted dependencies first.
+   * @return the modules in the order of {@code sortedModules}.
+   */
+  static <M> List<M> sortModules(@NotNull Collection<M> modules, @NotNull List<M> sortedModules) {
+    List<M> sorted = new ArrayList<>(modules.size());
+    for (M module : sortedModules) {
+      if (modules.contains(module)) sorted.add(module);
+    }
+    return sorted;
+  }
+
+
+  private void startTask() {
+    synchronized (this.lock) {
+      if (this.running || isEmpty()) return;
+      this.running = true;
+    }
+    new Task.Backgroundable(project, "Reloading spring configuration metadata") {
+      @Override
+      public void run(@NotNull ProgressIndicator indicator) {
+        Batch batch;
+        while ((batch = drain()) != null) {
+          batch.run(indicator);
+        }
+      }
+
+
+      @Override
+      public void onFinished() {
+        boolean remaining;
+        synchronized (lock) {
+          running = false;
+          remaining = !isEmpty();
+        }
+        // Requests may arrive after the last batch is drained, or are not drained since the task is canceled.
+        if (remaining) schedule();
+      }
+    }.queue();
+  }
+
+
+  private boolean isEmpty() {
+    return this.builtModules.isEmpty() && this.newClassRoots.isEmpty();
+  }
+
+
+  @Nullable
+  private Batch drain() {
+    synchronized (this.lock) {
+      if (isEmpty()) return null;
+      Batch batch = new Batch(this.builtModules, this.newClassRoots);
+      this.builtModules = new HashSet<>();
+      this.newClassRoots = new HashMap<>();
+      this.firstRequestTime = 0;
+      return batch;
+    }
+  }
+
+
+  private class Batch {
+    private final Set<Module> builtModules;
+    private final Map<Module, Set<VirtualFileUrl>> newClassRoots;
+
+
+    private Batch(Set<Module> builtModules, Map<Module, Set<VirtualFileUrl>> newClassRoots) {
+      this.builtModules = builtModules;
+      this.newClassRoots = newClassRoots;
+    }
+
+
+    void run(ProgressIndicator indicator) {
+      indicator.setIndeterminate(false);
+      ModuleManager moduleManager = ModuleManager.getInstance(project);
+      // The index recreates too late, we have to find the generated metadata files without the index.
+      List<VirtualFile> builtMetaFiles = new ArrayList<>();
+      for (Module module : this.builtModules) {
+        if (module.isDisposed()) continue;
+        for (VirtualFile classRoot : ModuleRootUtils.getClassRootsWithoutLibraries(module)) {
+          VirtualFile metaFile = MetadataFileIndex.findMetaFileInClassRoot(classRoot);
+          if (metaFile != null) builtMetaFiles.add(metaFile);
+        }
+      }
+      // Looks like the IDE won't reload the generated metadata file automatically,
+      // so we have to refresh it for use by IndexFromOneFile#reSync
+      builtMetaFiles.forEach(vf -> vf.refresh(true, false));
+
+      Map<Module, Set<VirtualFile>> additionalMetaFiles = new HashMap<>();
+      // Modules that depend on a built module are affected too, visit each module only once.
+      Set<Module> affectedModules = builtMetaFiles.isEmpty() ? Set.of() : withDependents(this.builtModules,
+          module -> module.isDisposed() ? List.of() : moduleManager.getModuleDependentModules(module));
+      for (Module module : affectedModules) {
+        if (!module.isDisposed()) additionalMetaFiles.put(module, new HashSet<>(builtMetaFiles));
+      }
+      this.newClassRoots.forEach((module, roots) -> {
+        if (module.isDisposed()) return;
+        Set<VirtualFile> files = additionalMetaFiles.computeIfAbsent(module, m -> new HashSet<>());
+        roots.stream()
+            .map(VirtualFileUrls::getVirtualFile)
+            .filter(Objects::nonNull)
+            .map(MetadataFileIndex::findMetaFileInClassRoot)
+            .filter(Objects::nonNull)
+            .forEach(files::add);
+      });
+
+      List<Module> modules = sortModules(additionalMetaFiles.keySet(), List.of(moduleManager.getSortedModules()));
+      LOG.debug("Refreshing metadata of modules: " + modules);
+      for (int i = 0; i < modules.size(); i++) {
+        ProgressManager.checkCanceled();
+        Module module = modules.get(i);
+        indicator.setText2(module.getName());
+        indicator.setFraction(i * 1.0d / modules.size());
+        if (module.getServiceIfCreated(ModuleMetadataService.class) instanceof ModuleMetadataServiceImpl impl) {
+          impl.refreshMetadata(additionalMetaFiles.get(module));
+        }
+      }
+      indicator.setText2("");
+    }
+  }
+}
@@ -1,15 +1,23 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
 
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtil;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.search.GlobalSearchScope;
-import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.AggregatedMetadataIndex;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.FallbackMetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.FileMetadataSource;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.MetadataFileIndex;
@@ -17,32 +25,68 @@ import dev.flikas.spring.boot.assistant.idea.plugin.misc.ModuleRootUtils;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-final class ModuleMetadataServiceImpl implements ModuleMetadataService {
+final class ModuleMetadataServiceImpl implements ModuleMetadataService, Disposable {
   private static final Logger LOG = Logger.getInstance(ModuleMetadataServiceImpl.class);
   private final Project project;
   private final Module module;
-  private MetadataIndex index;
+  private volatile MetadataIndex index;
+  private final ConfigurationPropertiesScanner scanner;
+  /**
+   * The index of metadata files and the one generated from sources, created only if the latter is not empty,
+   * as the former is usually shared with other modules.
+   */
+  @Nullable private volatile CombinedIndex combinedIndex;
+  /**
+   * Key of the {@linkplain ProjectMetadataService#acquireIndex(List) shared index} in use, guarded by this.
+   */
+  @Nullable private List<String> indexKey;
+  private ModuleScope scope;
 
 
   public ModuleMetadataServiceImpl(Module module) {
     this.module = module;
     this.project = module.getProject();
     this.index = this.project.getService(ProjectMetadataService.class).getEmptyIndex();
-    // read metadata for the first time
-    refreshMetadata();
+    this.scanner = new ConfigurationPropertiesScanner(module);
+    // Read metadata for the first time in background, the service is usually created by the first completion or
+    // inspection in this module, which should not wait for it. The empty index is used until it is loaded.
+    new Task.Backgroundable(project, "Loading spring configuration metadata of " + module.getName()) {
+      @Override
+      public void run(@NotNull ProgressIndicator indicator) {
+        if (module.isDisposed()) return;
+        refreshMetadata();
+        // Start scanning sources too, rather than in the first completion, the daemon is restarted when it is done.
+        scanner.getIndex();
+      }
+    }.queue();
   }
 
 
   @Override
   public @NotNull MetadataIndex getIndex() {
-    return index;
+    MetadataIndex filesIndex = this.index;
+    MetadataIndex sourcesIndex = this.scanner.getIndex();
+    if (sourcesIndex.isEmpty()) return filesIndex;
+    CombinedIndex combined = this.combinedIndex;
+    if (combined == null || combined.filesIndex() != filesIndex || combined.sourcesIndex() != sourcesIndex) {
+      // Metadata files win, they are more complete (descriptions, hints, etc.) if they are up-to-date.
+      // Neither index is copied, the one of files is usually shared with other modules, and is large.
+      combined = new CombinedIndex(filesIndex, sourcesIndex, new FallbackMetadataIndex(filesIndex, sourcesIndex));
+      this.combinedIndex = combined;
+    }
+    return combined.index();
   }
 
 
@@ -53,7 +97,7 @@ final class ModuleMetadataServiceImpl implements ModuleMetadataService {
 
   synchronized void refreshMetadata(Collection<VirtualFile> unIndexedMetaFiles) {
     LOG.trace("Try refreshing metadata for module " + this.module.getName());
-    @NotNull GlobalSearchScope scope = new ModuleScope(this.module);
+    @NotNull ModuleScope scope = getScope();
     Collection<VirtualFile> files = DumbService.getInstance(project).runReadActionInSmartMode(() -> {
       HashSet<VirtualFile> metafiles = new HashSet<>(MetadataFileIndex.getFiles(scope));
       for (VirtualFile metafile : unIndexedMetaFiles) {
@@ -61,33 +105,80 @@ final class ModuleMetadataServiceImpl implements ModuleMetadataService {
       }
       return metafiles;
     });
-    if (this.index instanceof AggregatedMetadataIndex aidx) {
-      aidx.refresh();
-    }
-    Set<String> currentFiles = this.index.getSource().stream()
+    // The index in use may be shared with other modules, it is never changed, an index of the new files is acquired
+    // instead. Changed files are reloaded by themselves, see MetadataFileContainer.
+    List<FileMetadataSource> currentSources = this.index.getSource().stream()
         .filter(FileMetadataSource.class::isInstance)
-        .map(s -> ((FileMetadataSource) s).getSource().getUrl())
+        .map(FileMetadataSource.class::cast)
+        .toList();
+    Set<String> currentFiles = currentSources.stream()
+        .map(s -> s.getSource().getUrl())
         .collect(Collectors.toSet());
-    if (currentFiles.containsAll(files.stream().map(VirtualFile::getUrl).collect(Collectors.toSet()))) {
-      // No new metadata files, can stop here.
+    Set<String> foundFiles = files.stream().map(VirtualFile::getUrl).collect(Collectors.toSet());
+    // A removed file is invalid, unless it has been recreated, then it is found again by its url.
+    List<FileMetadataSource> removedSources = currentSources.stream()
+        .filter(s -> !s.isValid() && !foundFiles.contains(s.getSource().getUrl()))
+        .toList();
+    if (removedSources.isEmpty() && currentFiles.containsAll(foundFiles)) {
+      // No new or removed metadata files, can stop here.
       return;
     }
     // Because the MetadataFileIndex may lag of the creation of new metafiles,
     // we only accept new metafiles from the index (but won't remove files even if the index doesn't contain it),
-    // the removal of the non-exists ones is done by AggregatedMetadataIndex#refresh()
+    // only the ones that do not exist anymore are removed.
     files.removeIf(vf -> currentFiles.contains(vf.getUrl()));
     LOG.info("Module \"" + this.module.getName() + "\"'s metadata needs refresh");
-    LOG.info("New metadata files: " + files);
+    LOG.info("New metadata files: " + files + ", removed metadata files: " + removedSources);
+    currentSources.stream()
+        .filter(s -> !removedSources.contains(s))
+        .map(s -> s.isValid() ? s.getSource() : VirtualFileManager.getInstance().findFileByUrl(s.getSource().getUrl()))
+        .filter(Objects::nonNull)
+        .forEach(files::add);
+    // In the order of the classpath, so that modules with the same dependencies get the same list, thus the same index.
+    List<VirtualFile> orderedFiles = ReadAction.compute(() -> files.stream()
+        .sorted(Comparator.comparingInt(scope::getClasspathOrder).thenComparing(VirtualFile::getUrl))
+        .toList());
     ProjectMetadataService pms = project.getService(ProjectMetadataService.class);
-    AggregatedMetadataIndex meta = this.index instanceof AggregatedMetadataIndex
-        ? (AggregatedMetadataIndex) this.index
-        : new AggregatedMetadataIndex();
-    for (VirtualFile file : files) {
-      meta.addLast(pms.getIndexForMetaFile(file));
+    long start = MetadataStatistics.start();
+    ProjectMetadataService.AcquiredIndex acquired = pms.acquireIndex(orderedFiles);
+    long elapsed = MetadataStatistics.record(MetadataStatistics.Timer.BUILD_MODULE_INDEX, start);
+    LOG.info("Index of module \"" + this.module.getName() + "\" with " + orderedFiles.size()
+        + " metadata files is built in " + elapsed / 1_000_000 + " ms");
+    if (this.module.isDisposed() || acquired.index().isEmpty() && removedSources.isEmpty()) {
+      pms.releaseIndex(acquired.key());
+      return;
+    }
+    if (this.indexKey != null) {
+      pms.releaseIndex(this.indexKey);
+    }
+    this.indexKey = acquired.key();
+    this.index = acquired.index();
+    // Re-highlight the opened files with the new metadata.
+    DaemonCodeAnalyzer.getInstance(project).restart();
+  }
+
+
+  @Override
+  public synchronized void dispose() {
+    if (this.indexKey != null) {
+      project.getService(ProjectMetadataService.class).releaseIndex(this.indexKey);
+      this.indexKey = null;
     }
-    if (!meta.isEmpty()) {
-      this.index = meta;
+  }
+
+
+  private record CombinedIndex(MetadataIndex filesIndex, MetadataIndex sourcesIndex, MetadataIndex index) {}
+
+
+  /**
+   * Computing the scope walks the whole dependency graph of the module, so it is reused until roots are changed.
+   */
+  private ModuleScope getScope() {
+    long rootsModificationCount = ProjectRootManager.getInstance(project).getModificationCount();
+    if (this.scope == null || this.scope.rootsModificationCount != rootsModificationCount) {
+      this.scope = new ModuleScope(this.module, rootsModificationCount);
     }
+    return this.scope;
   }
 
 
@@ -99,12 +190,14 @@ final class ModuleMetadataServiceImpl implements ModuleMetadataService {
   private static class ModuleScope extends GlobalSearchScope {
     private final ProjectFileIndex projectFileIndex;
     private final Object2IntMap<VirtualFile> libraryRoots;
-    private final VirtualFile[] moduleRoots;
+    private final Set<VirtualFile> moduleRoots;
     private final Set<Module> modulesInScope;
+    private final long rootsModificationCount;
 
 
-    private ModuleScope(Module module) {
+    private ModuleScope(Module module, long rootsModificationCount) {
       super(module.getProject());
+      this.rootsModificationCount = rootsModificationCount;
       this.projectFileIndex = ProjectFileIndex.getInstance(module.getProject());
       VirtualFile[] roots = ModuleRootUtils.getClassRootsRecursively(module);
       Object2IntOpenHashMap<VirtualFile> map = new Object2IntOpenHashMap<>(roots.length);
@@ -116,7 +209,16 @@ final class ModuleMetadataServiceImpl implements ModuleMetadataService {
       Set<Module> modules = new HashSet<>();
       ModuleUtil.getDependencies(module, modules);
       this.modulesInScope = modules;
-      this.moduleRoots = ModuleRootUtils.getClassRootsWithoutLibrariesRecursively(module);
+      this.moduleRoots = Set.copyOf(Arrays.asList(ModuleRootUtils.getClassRootsWithoutLibrariesRecursively(module)));
+    }
+
+
+    /**
+     * @return position of the file's class root in the classpath, or -1 for files in the module's output paths.
+     */
+    int getClasspathOrder(@NotNull VirtualFile file) {
+      VirtualFile root = projectFileIndex.getClassRootForFile(file);
+      return root == null ? -1 : libraryRoots.getOrDefault(root, -1);
     }
 
 
@@ -157,12 +259,7 @@ final class ModuleMetadataServiceImpl implements ModuleMetadataService {
       }
       // - Or file is in the module's class roots without libraries.
       //   This is for gradle projects, for its special module structure.
-      for (VirtualFile moduleRoot : this.moduleRoots) {
-        if (VfsUtilCore.isAncestor(moduleRoot, file, false)) {
-          return true;
-        }
-      }
-      return false;
+      return VfsUtilCore.isUnder(file, this.moduleRoots);
     }
   }
 }
@@ -1,53 +1,137 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
 
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiExpression;
 import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiJavaFile;
 import com.intellij.psi.PsiLiteralExpression;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiPrimitiveType;
 import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
 import com.intellij.psi.PsiType;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.SmartTypePointer;
+import com.intellij.psi.SmartTypePointerManager;
+import com.intellij.psi.util.InheritanceUtil;
 import com.intellij.psi.util.PropertyUtil;
+import com.intellij.psi.util.PsiTreeUtil;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.AggregatedMetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.ConfigurationMetadataIndex;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.LazyMetadataIndexReference;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataProperty;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataSource;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MountedMetadataIndex;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.NameBloomFilter;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadata;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import dev.flikas.spring.boot.assistant.idea.plugin.misc.MutableReference;
 import dev.flikas.spring.boot.assistant.idea.plugin.misc.PsiTypeUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static dev.flikas.spring.boot.assistant.idea.plugin.misc.PsiTypeUtils.getCanonicalTextOfType;
-import static java.util.function.Predicate.not;
 
 /**
  * Service that provides {@link MetadataIndex} from {@link MetadataProperty#getFullType()}.
  * <p>
- * And watch for update continuously.
+ * What is generated from a class does not depend on where it is bound, so it is introspected once into a
+ * {@link ClassTemplate}, with names relative to the binding name, and {@linkplain MountedMetadataIndex mounted} at
+ * every property of its type, instead of being copied.
+ * <p>
+ * Metadata is updated while the classes are being edited, without a compilation: a change of a class drops the
+ * template of that class, and of its subclasses, whose templates contain the inherited properties. Classes that have
+ * properties of its type keep their templates, as a template refers to the types of its nested properties only;
+ * generated indexes that contain any of them, found by a reverse type-usage graph, are regenerated on next use by
+ * mounting the templates again, so only the changed classes are introspected again. A template is dropped as well if
+ * the type of one of its properties turns from a value type into a class or vice versa (e.g. a constructor from string
+ * is added to it), which is known only after the change. Everything is dropped while project's dependencies changed.
+ * <p>
+ * A generation is bounded by a budget of nesting depth, number of properties and time, which are registry values,
+ * so that a property of a huge type (e.g. an entity graph) does not block the read action. Nested properties beyond
+ * the budget are {@linkplain LazyClassMetadata generated lazily}, when a lookup actually reaches them.
+ * <p>
+ * As a {@link ModificationTracker}, the count changes every time any template is dropped, indexes that contain the
+ * generated indexes should {@linkplain AggregatedMetadataIndex#addDependency(ModificationTracker) depend} on it.
  */
 @Service(Service.Level.PROJECT)
-final class ProjectClassMetadataService implements Disposable {
+final class ProjectClassMetadataService implements ModificationTracker, Disposable {
   private static final Logger LOG = Logger.getInstance(ProjectClassMetadataService.class);
+  private static final String MAX_DEPTH_KEY = "spring.boot.assistant.metadata.class.max.depth";
+  private static final String MAX_PROPERTIES_KEY = "spring.boot.assistant.metadata.class.max.properties";
+  private static final String MAX_MILLIS_KEY = "spring.boot.assistant.metadata.class.max.millis";
 
   private final Project project;
+  private final AtomicLong modificationCount = new AtomicLong();
+  /**
+   * Templates by the FQN of the class.
+   */
+  private final ConcurrentMap<String, ClassTemplate> templates = new ConcurrentHashMap<>();
+  /**
+   * The reverse type-usage graph, from a class to the classes whose generated metadata contains what is generated
+   * from it, i.e. classes that have (nested) properties of its type.
+   */
+  private final ConcurrentMap<String, Set<String>> dependents = new ConcurrentHashMap<>();
+  /**
+   * From a class to its subclasses that have templates, which contain the properties inherited from it.
+   */
+  private final ConcurrentMap<String, Set<String>> subclasses = new ConcurrentHashMap<>();
+  /**
+   * From a class to the classes whose templates have properties of its type.
+   */
+  private final ConcurrentMap<String, Set<String>> propertyTypeUsers = new ConcurrentHashMap<>();
+  /**
+   * Whether a class is a value type, when templates that have properties of its type were created.
+   */
+  private final ConcurrentMap<String, Boolean> valueTypes = new ConcurrentHashMap<>();
+  /**
+   * The modification count when the class is changed last time.
+   */
+  private final ConcurrentMap<String, Long> changeStamps = new ConcurrentHashMap<>();
+  private volatile long allChangedStamp = 0;
 
 
   public ProjectClassMetadataService(Project project) {
     this.project = project;
-    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
-      //TODO Watch Psi changes
-      //TODO Watch class's modification & update metadata
-    }, this);
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new ClassChangeListener(), this);
+    project.getMessageBus().connect(this).subscribe(ModuleRootListener.TOPIC, new ModuleRootListener() {
+      @Override
+      public void rootsChanged(@NotNull ModuleRootEvent event) {
+        invalidateAll();
+      }
+    });
   }
 
 
@@ -56,91 +140,539 @@ final class ProjectClassMetadataService implements Disposable {
     if (PsiTypeUtils.isValueType(type)) {
       return Optional.empty();
     }
-    return Optional.of(generateMetadataInSmartMode(new AggregatedMetadataIndex(), PropertyName.of(baseName), type))
-        .filter(not(MetadataIndex::isEmpty));
+    GeneratedMetadata generated = new GeneratedMetadata(PropertyName.of(baseName), type);
+    DumbService.getInstance(project).runReadActionInSmartMode(generated::regenerate);
+    if (generated.isEmpty()) return Optional.empty();
+    AggregatedMetadataIndex index = new AggregatedMetadataIndex();
+    index.addLast(generated);
+    index.addDependency(this);
+    return Optional.of(index);
   }
 
 
-  @NotNull
-  private MetadataIndex generateMetadataInSmartMode(
-      AggregatedMetadataIndex index, PropertyName basename, PsiType type
-  ) {
-    Set<PsiClass> visitedClasses = new LinkedHashSet<>();
-    return DumbService.getInstance(project).runReadActionInSmartMode(() -> generateMetadata(index, basename, type, visitedClasses));
+  @Override
+  public long getModificationCount() {
+    return this.modificationCount.get();
   }
 
 
-  @NotNull
-  private MetadataIndex generateMetadata(AggregatedMetadataIndex index, PropertyName basename, PsiType type, Set<PsiClass> visitedClasses) {
+  /**
+   * Drop templates of the classes and their subclasses, and mark metadata generated from them, or from classes that
+   * have properties of their types, changed.
+   */
+  private void invalidate(@NotNull Collection<String> classes) {
+    Set<String> changed = reachable(classes, List.of(this.subclasses, this.dependents));
+    // Changes of classes that metadata is never generated from, e.g. most classes of the project, cost nothing.
+    if (changed.stream().noneMatch(c -> this.templates.containsKey(c) || this.dependents.containsKey(c))) return;
+    LOG.debug("Classes changed: " + changed);
+    reachable(classes, List.of(this.subclasses)).forEach(this.templates::remove);
+    long stamp = this.modificationCount.incrementAndGet();
+    changed.forEach(className -> this.changeStamps.put(className, stamp));
+  }
+
+
+  /**
+   * Drop templates that have properties of the class, if it has turned from a value type into a class or vice versa,
+   * as leaf properties and nested properties are told apart by that when the templates are created.
+   */
+  private void checkValueType(@NotNull PsiClass psiClass) {
+    String className = psiClass.getQualifiedName();
+    Boolean wasValueType = className == null ? null : this.valueTypes.get(className);
+    if (wasValueType == null) return;
+    boolean valueType = PsiTypeUtils.isValueType(JavaPsiFacade.getElementFactory(project).createType(psiClass));
+    if (valueType == wasValueType) return;
+    this.valueTypes.put(className, valueType);
+    Set<String> users = this.propertyTypeUsers.get(className);
+    if (users != null) invalidate(List.copyOf(users));
+  }
+
+
+  /**
+   * @return the classes, and the classes reachable from them by any of the graphs.
+   */
+  static Set<String> reachable(Collection<String> classes, List<Map<String, Set<String>>> graphs) {
+    Deque<String> queue = new ArrayDeque<>(classes);
+    Set<String> visited = new LinkedHashSet<>();
+    while (!queue.isEmpty()) {
+      String className = queue.poll();
+      if (!visited.add(className)) continue;
+      for (Map<String, Set<String>> graph : graphs) {
+        Set<String> next = graph.get(className);
+        if (next != null) queue.addAll(next);
+      }
+    }
+    return visited;
+  }
+
+
+  private void invalidateAll() {
+    this.templates.clear();
+    this.dependents.clear();
+    this.subclasses.clear();
+    this.propertyTypeUsers.clear();
+    this.valueTypes.clear();
+    this.changeStamps.clear();
+    this.allChangedStamp = this.modificationCount.incrementAndGet();
+  }
+
+
+  private boolean isChangedSince(@Nullable String className, long stamp) {
+    return this.allChangedStamp > stamp
+        || className != null && this.changeStamps.getOrDefault(className, 0L) > stamp;
+  }
+
+
+  private static void addEdge(Map<String, Set<String>> graph, @NotNull String className, @NotNull String dependent) {
+    if (className.equals(dependent)) return;
+    graph.computeIfAbsent(className, k -> ConcurrentHashMap.newKeySet()).add(dependent);
+  }
+
+
+  /**
+   * @param depth number of classes the type is nested in, since the generation started.
+   */
+  private void generateMetadata(
+      Generation generation, PropertyName basename, PsiType type, @Nullable String owner, int depth
+  ) {
     LOG.debug("Generating metadata for: " + basename + " -> " + type.getPresentableText());
     if (PsiTypeUtils.isValueType(type)) {
       // Exit condition: value type do not need to index.
-      return index;
+      // But it may turn into a class (e.g. the element type of a collection), then the owner should be generated again.
+      PsiClass valueClass = PsiTypeUtils.resolveClassInType(type);
+      String className = valueClass == null ? null : valueClass.getQualifiedName();
+      if (owner != null && className != null) addEdge(this.dependents, className, owner);
+      return;
     }
     if (PsiTypeUtils.isMap(project, type)) {
+      PsiType[] kvType;
       try {
-        PsiType[] kvType = PsiTypeUtils.getKeyValueType(project, type);
-        if (!(kvType != null && kvType.length == 2)) {
-          LOG.warn("Unsupported map type: " + type);
-          return index;
-        }
-        if (!PsiTypeUtils.isValueType(kvType[0])) {
-          LOG.warn(basename + " has unsupported Map key type: " + type);
-          return index;
-        }
-        generateMetadata(index, basename.appendAnyMapKey(), kvType[1], visitedClasses);
+        kvType = PsiTypeUtils.getKeyValueType(project, type);
       } catch (Exception e) {
         LOG.warn(basename + " has illegal Map type: " + type);
-        return index;
+        return;
+      }
+      if (!(kvType != null && kvType.length == 2)) {
+        LOG.warn("Unsupported map type: " + type);
+        return;
+      }
+      if (!PsiTypeUtils.isValueType(kvType[0])) {
+        LOG.warn(basename + " has unsupported Map key type: " + type);
+        return;
       }
+      generateMetadata(generation, basename.appendAnyMapKey(), kvType[1], owner, depth);
     } else if (PsiTypeUtils.isCollection(project, type)) {
+      PsiType elementType;
       try {
-        PsiType elementType = PsiTypeUtils.getElementType(project, type);
-        assert elementType != null;
-        generateMetadata(index, basename.appendAnyNumericalIndex(), elementType, visitedClasses);
+        elementType = PsiTypeUtils.getElementType(project, type);
       } catch (Exception e) {
         LOG.warn(basename + " has illegal Collection type: " + type);
-        return index;
+        return;
+      }
+      if (elementType == null) {
+        LOG.warn(basename + " has illegal Collection type: " + type);
+        return;
       }
+      generateMetadata(generation, basename.appendAnyNumericalIndex(), elementType, owner, depth);
     } else {
+      ProgressManager.checkCanceled();
       PsiClass valueClass = PsiTypeUtils.resolveClassInType(type);
-      if (valueClass == null) return index;
-      if (visitedClasses.contains(valueClass)) return index;
-      visitedClasses.add(valueClass);
-      ConfigurationMetadata metadata = new ConfigurationMetadata();
-      String[] writableProperties = PropertyUtil.getWritableProperties(valueClass, true);
-      for (String fieldName : writableProperties) {
-        PsiField field = valueClass.findFieldByName(fieldName, true);
-        if (field == null) continue;
-        PropertyName name = basename.append(PropertyName.toKebabCase(fieldName));
-        ConfigurationMetadata.Property meta = new ConfigurationMetadata.Property();
-        meta.setName(name.toString());
-        PsiType propertyType = PropertyUtil.getPropertyType(field);
-        if (propertyType instanceof PsiPrimitiveType primitiveType) {
-          propertyType = primitiveType.getBoxedType(field);
-        }
-        if (propertyType == null) continue;
-        if (PsiTypeUtils.isValueType(propertyType)) {
-          // Leaf property, whose value can be converted to/from a single string
-          meta.setType(getCanonicalTextOfType(propertyType));
-          meta.setSourceType(valueClass.getQualifiedName());
-          PsiExpression initializer = field.getInitializer();
-          if (initializer instanceof PsiLiteralExpression literal) {
-            meta.setDefaultValue(literal.getValue());
-          }
-          metadata.getProperties().add(meta);
+      if (valueClass == null) return;
+      String className = valueClass.getQualifiedName();
+      if (owner != null && className != null) addEdge(this.dependents, className, owner);
+      // Classes without a name (local or anonymous ones) cannot be nested in themselves more than the depth limit.
+      if (className != null && !generation.visitedClasses.add(className)) return;
+      ClassTemplate template = getTemplate(valueClass);
+      generation.generatedProperties += template.index().getProperties().size();
+      for (NestedProperty nested : template.nestedProperties()) {
+        PropertyName name = basename.append(nested.name());
+        if (generation.isExhausted(depth + 1)) {
+          generation.index.addLast(
+              new LazyClassMetadata(name, nested.type(), valueClass, template.source(), generation.visitedClasses));
         } else {
           // Nested class, recursive in.
-          generateMetadata(index, name, propertyType, visitedClasses);
+          generateMetadata(generation, name, nested.type(), className, depth + 1);
         }
       }
-      index.addLast(new ConfigurationMetadataIndex(metadata, valueClass, project));
+      if (!template.index().isEmpty()) {
+        generation.index.addLast(new MountedMetadataIndex(basename, template.index()));
+      }
     }
-    return index;
+  }
+
+
+  @NotNull
+  private ClassTemplate getTemplate(@NotNull PsiClass psiClass) {
+    String qualifiedName = psiClass.getQualifiedName();
+    if (qualifiedName == null) {
+      // Local or anonymous class, which cannot be looked up by name.
+      return createTemplate(psiClass);
+    }
+    return this.templates.computeIfAbsent(qualifiedName, n -> {
+      // Inherited properties are in the template too.
+      for (PsiClass superClass : InheritanceUtil.getSuperClasses(psiClass)) {
+        String superName = superClass.getQualifiedName();
+        if (superName != null) addEdge(this.subclasses, superName, qualifiedName);
+      }
+      return createTemplate(psiClass);
+    });
+  }
+
+
+  @NotNull
+  private ClassTemplate createTemplate(@NotNull PsiClass valueClass) {
+    LOG.debug("Introspecting class: " + valueClass.getQualifiedName());
+    ConfigurationMetadata metadata = new ConfigurationMetadata();
+    List<NestedProperty> nestedProperties = new ArrayList<>();
+    String[] writableProperties = PropertyUtil.getWritableProperties(valueClass, true);
+    for (String fieldName : writableProperties) {
+      PsiField field = valueClass.findFieldByName(fieldName, true);
+      if (field == null) continue;
+      String name = PropertyName.toKebabCase(fieldName);
+      PsiType propertyType = PropertyUtil.getPropertyType(field);
+      if (propertyType instanceof PsiPrimitiveType primitiveType) {
+        propertyType = primitiveType.getBoxedType(field);
+      }
+      if (propertyType == null) continue;
+      boolean valueType = PsiTypeUtils.isValueType(propertyType);
+      PsiClass typeClass = PsiTypeUtils.resolveClassInType(propertyType);
+      String typeName = typeClass == null ? null : typeClass.getQualifiedName();
+      if (typeName != null && valueClass.getQualifiedName() != null) {
+        addEdge(this.propertyTypeUsers, typeName, valueClass.getQualifiedName());
+        this.valueTypes.put(typeName, valueType);
+      }
+      if (valueType) {
+        // Leaf property, whose value can be converted to/from a single string
+        ConfigurationMetadata.Property meta = new ConfigurationMetadata.Property();
+        meta.setName(name);
+        meta.setType(getCanonicalTextOfType(propertyType));
+        meta.setSourceType(valueClass.getQualifiedName());
+        PsiExpression initializer = field.getInitializer();
+        if (initializer instanceof PsiLiteralExpression literal) {
+          meta.setDefaultValue(literal.getValue());
+        }
+        metadata.getProperties().add(meta);
+      } else {
+        nestedProperties.add(new NestedProperty(name, propertyType));
+      }
+    }
+    return new ClassTemplate(new ConfigurationMetadataIndex(metadata, valueClass, project), List.copyOf(nestedProperties));
   }
 
 
   @Override
   public void dispose() {
   }
+
+
+  /**
+   * Metadata generated from a class, names are relative to the name that the class is bound to.
+   *
+   * @param index            leaf properties of the class.
+   * @param nestedProperties properties whose type is not a value type, they are generated from their type recursively.
+   */
+  private record ClassTemplate(@NotNull MetadataIndex index, @NotNull List<NestedProperty> nestedProperties) {
+    /**
+     * @return source of the index, which is the class that the template is introspected from.
+     */
+    @NotNull
+    MetadataSource source() {
+      return this.index.getSource().get(0);
+    }
+  }
+
+
+  private record NestedProperty(@NotNull String name, @NotNull PsiType type) {}
+
+
+  /**
+   * State of a generation, which stops going deeper when the budget is exhausted.
+   */
+  private static class Generation {
+    private final AggregatedMetadataIndex index = new AggregatedMetadataIndex();
+    /**
+     * FQNs of classes that have been generated, in order, for breaking cycles.
+     */
+    private final Set<String> visitedClasses;
+    private final int maxDepth = Registry.intValue(MAX_DEPTH_KEY, 5);
+    private final int maxProperties = Registry.intValue(MAX_PROPERTIES_KEY, 500);
+    private final long deadline =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Registry.intValue(MAX_MILLIS_KEY, 100));
+    private int generatedProperties = 0;
+
+
+    Generation(Set<String> visitedClasses) {
+      this.visitedClasses = new LinkedHashSet<>(visitedClasses);
+    }
+
+
+    boolean isExhausted(int depth) {
+      return depth > this.maxDepth || this.generatedProperties >= this.maxProperties
+          || System.nanoTime() - this.deadline > 0;
+    }
+  }
+
+
+  /**
+   * Metadata generated from a type, which is regenerated on {@link #dereference()} if the class it is rooted at, or
+   * any class it depends on, has changed since it is generated.
+   */
+  private class GeneratedMetadata implements MutableReference<MetadataIndex> {
+    private final PropertyName basename;
+    private final SmartTypePointer type;
+    private volatile MetadataIndex index;
+    /**
+     * FQN of the class that the type is resolved to, null if it is not resolved to a class.
+     */
+    @Nullable private volatile String rootClass;
+    private volatile long stamp;
+
+
+    GeneratedMetadata(PropertyName basename, PsiType type) {
+      this.basename = basename;
+      this.type = SmartTypePointerManager.getInstance(project).createSmartTypePointer(type);
+      this.index = MetadataIndex.empty(project);
+    }
+
+
+    @Override
+    public @NotNull MetadataIndex dereference() {
+      if (isChangedSince(this.rootClass, this.stamp)) {
+        // Lock in the read action, as other threads may be waiting for the lock in read actions.
+        ReadAction.run(() -> {
+          synchronized (this) {
+            // Keep using the outdated one in dumb mode, classes cannot be introspected without indexes.
+            if (isChangedSince(this.rootClass, this.stamp) && !DumbService.isDumb(project)) regenerate();
+          }
+        });
+      }
+      return this.index;
+    }
+
+
+    boolean isEmpty() {
+      return this.index.isEmpty();
+    }
+
+
+    /**
+     * Should be called in a smart mode read action.
+     */
+    void regenerate() {
+      long start = MetadataStatistics.start();
+      // Take the stamp first, so that a change during the generation will cause another one.
+      long stamp = getModificationCount();
+      PsiType type = this.type.getType();
+      Generation generation = new Generation(Set.of());
+      if (type != null) generateMetadata(generation, this.basename, type, null, 0);
+      this.index = generation.index;
+      // Every class that is visited is depended by the first one, as they are visited from it.
+      this.rootClass = generation.visitedClasses.stream().findFirst().orElse(null);
+      this.stamp = stamp;
+      MetadataStatistics.record(MetadataStatistics.Timer.GENERATE_CLASS_METADATA, start);
+    }
+  }
+
+
+  /**
+   * Metadata generated from a nested property that is beyond the budget of the generation of its owner,
+   * it is generated by its own budget when a lookup reaches it.
+   * <p>
+   * It is not regenerated on changes, as the one that contains it is regenerated then, with new ones.
+   */
+  private class LazyClassMetadata implements LazyMetadataIndexReference {
+    private final PropertyName basename;
+    private final SmartTypePointer type;
+    private final SmartPsiElementPointer<PsiClass> owner;
+    @Nullable private final String ownerName;
+    /**
+     * Shared with the template of the owner.
+     */
+    private final MetadataSource source;
+    private final Set<String> visitedClasses;
+    private volatile MetadataIndex index;
+    private volatile boolean loaded = false;
+
+
+    LazyClassMetadata(
+        PropertyName basename, PsiType type, PsiClass owner, MetadataSource source, Set<String> visitedClasses
+    ) {
+      this.basename = basename;
+      this.type = SmartTypePointerManager.getInstance(project).createSmartTypePointer(type);
+      this.owner = SmartPointerManager.createPointer(owner);
+      this.ownerName = owner.getQualifiedName();
+      this.source = source;
+      this.visitedClasses = Set.copyOf(visitedClasses);
+      this.index = MetadataIndex.empty(project);
+    }
+
+
+    @Override
+    public @NotNull MetadataIndex dereference() {
+      if (!this.loaded) {
+        // Lock in the read action, as other threads may be waiting for the lock in read actions.
+        ReadAction.run(() -> {
+          synchronized (this) {
+            // Try again on next lookup, classes cannot be introspected without indexes.
+            if (this.loaded || DumbService.isDumb(project)) return;
+            long start = MetadataStatistics.start();
+            PsiClass owner = this.owner.getElement();
+            PsiType type = this.type.getType();
+            Generation generation = new Generation(this.visitedClasses);
+            // If the owner has been deleted, the metadata that contains this one is regenerated without it anyway.
+            if (owner != null && owner.isValid() && type != null) {
+              generateMetadata(generation, this.basename, type, this.ownerName, 0);
+            }
+            this.index = generation.index;
+            this.loaded = true;
+            MetadataStatistics.record(MetadataStatistics.Timer.GENERATE_CLASS_METADATA, start);
+          }
+        });
+      }
+      return this.index;
+    }
+
+
+    @Override
+    public boolean isLoaded() {
+      return this.loaded;
+    }
+
+
+    @Override
+    public boolean mightContain(@NotNull NameBloomFilter.Probe probe) {
+      PropertyName name = probe.getName();
+      // The parent is included, for completion of the names of its children.
+      return this.basename.equals(name) || this.basename.isAncestorOf(name) || name.isParentOf(this.basename);
+    }
+
+
+    @Override
+    public @NotNull MetadataSource getSource() {
+      return this.source;
+    }
+  }
+
+
+  /**
+   * Drops templates of classes that are about to change, so the old names of renamed/moved/deleted ones are handled.
+   * After the change, checks whether the changed classes are still value types or not.
+   */
+  private class ClassChangeListener extends PsiTreeChangeAdapter {
+    @Override
+    public void beforeChildAddition(@NotNull PsiTreeChangeEvent event) {
+      beforeChange(event);
+    }
+
+
+    @Override
+    public void beforeChildRemoval(@NotNull PsiTreeChangeEvent event) {
+      beforeChange(event);
+    }
+
+
+    @Override
+    public void beforeChildReplacement(@NotNull PsiTreeChangeEvent event) {
+      beforeChange(event);
+    }
+
+
+    @Override
+    public void beforeChildMovement(@NotNull PsiTreeChangeEvent event) {
+      beforeChange(event);
+    }
+
+
+    @Override
+    public void beforeChildrenChange(@NotNull PsiTreeChangeEvent event) {
+      beforeChange(event);
+    }
+
+
+    @Override
+    public void beforePropertyChange(@NotNull PsiTreeChangeEvent event) {
+      beforeChange(event);
+    }
+
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    @Override
+    public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+      afterChange(event);
+    }
+
+
+    private void beforeChange(PsiTreeChangeEvent event) {
+      List<String> classes = new ArrayList<>();
+      for (PsiClass psiClass : getChangedClasses(event)) {
+        String name = psiClass.getQualifiedName();
+        if (name != null) classes.add(name);
+      }
+      if (!classes.isEmpty()) invalidate(classes);
+    }
+
+
+    private void afterChange(PsiTreeChangeEvent event) {
+      // Most likely no template has a property of a class in the project.
+      if (valueTypes.isEmpty()) return;
+      getChangedClasses(event).forEach(ProjectClassMetadataService.this::checkValueType);
+    }
+
+
+    private static List<PsiClass> getChangedClasses(PsiTreeChangeEvent event) {
+      PsiElement parent = event.getParent();
+      PsiElement element = parent == null || parent instanceof PsiDirectory ? event.getChild() : parent;
+      if (element == null) element = event.getElement();
+      if (element == null || !(element.getContainingFile() instanceof PsiJavaFile javaFile)) return List.of();
+      List<PsiClass> classes = new ArrayList<>();
+      if (event.getChild() instanceof PsiClass child) {
+        collectClasses(new PsiClass[]{child}, classes);
+      }
+      PsiClass psiClass = PsiTreeUtil.getParentOfType(element, PsiClass.class, false);
+      if (psiClass == null) {
+        // The file itself is changed, e.g. package statement, imports, or the file is moved.
+        collectClasses(javaFile.getClasses(), classes);
+      } else if (PsiTreeUtil.getParentOfType(element, PsiCodeBlock.class, false, PsiClass.class) == null) {
+        // Changes in method bodies do not affect metadata.
+        classes.add(psiClass);
+      }
+      return classes;
+    }
+
+
+    private static void collectClasses(PsiClass[] psiClasses, List<PsiClass> classes) {
+      for (PsiClass psiClass : psiClasses) {
+        classes.add(psiClass);
+        collectClasses(psiClass.getInnerClasses(), classes);
+      }
+    }
+  }
 }
@@ -1,16 +1,33 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
 
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.ide.highlighter.ArchiveFileType;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.Service;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootModel;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.JarFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
 import com.intellij.task.ProjectTaskListener;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.AggregatedMetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataIndex;
 import dev.flikas.spring.boot.assistant.idea.plugin.misc.MutableReference;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -21,11 +38,15 @@ import static com.intellij.openapi.compiler.CompilerTopics.COMPILATION_STATUS;
  * <p>
  * It searches and generate index from Spring Configuration Files
  * in the source root and watches them for automatically update the index.
+ * <p>
+ * Modules that have the same metadata files (e.g. modules of source sets, or sibling modules with the same
+ * dependencies) {@linkplain #acquireIndex(List) share} the same merged index.
  */
 @Service(Service.Level.PROJECT)
 final class ProjectMetadataService implements Disposable {
   private final Project project;
   private final ConcurrentMap<String, MetadataFileContainer> metadataFiles = new ConcurrentHashMap<>();
+  private final ConcurrentMap<List<String>, SharedIndex> sharedIndexes = new ConcurrentHashMap<>();
   @Getter private final MetadataIndex emptyIndex;
 
 
@@ -36,22 +57,158 @@ final class ProjectMetadataService implements Disposable {
     project.getMessageBus().connect().subscribe(COMPILATION_STATUS, compilationListener);
     // For gradle delegated build
     project.getMessageBus().connect().subscribe(ProjectTaskListener.TOPIC, compilationListener);
+    project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        markOutdated(events);
+      }
+    });
+  }
+
+
+  /**
+   * Get indexes of the metadata files, the files that have not been loaded are loaded concurrently,
+   * except the ones in libraries, which are loaded on the first lookup that may hit them.
+   * <p>
+   * Loading can be canceled by the progress indicator of the calling thread, files that have not been loaded
+   * by then will be loaded on their first use.
+   */
+  public List<MutableReference<MetadataIndex>> getIndexesForMetaFiles(@NotNull Collection<VirtualFile> metadataFiles) {
+    List<MetadataFileContainer> containers = metadataFiles.stream().map(this::getIndex).toList();
+    List<MetadataFileContainer> toLoad = containers.stream().filter(c -> !c.prepareLazyLoading()).toList();
+    // A container that is being loaded by another thread blocks the worker until it is loaded, it never loads twice.
+    JobLauncher.getInstance().invokeConcurrentlyUnderProgress(toLoad,
+        ProgressManager.getInstance().getProgressIndicator(), container -> {
+          container.refresh();
+          return true;
+        });
+    return Collections.unmodifiableList(containers);
+  }
+
+
+  /**
+   * Get the merged index of the metadata files, in which the first file that contains an item wins.
+   * <p>
+   * The index is shared by all callers that acquire the same files in the same order, and it is held until all of
+   * them {@linkplain #releaseIndex(List) release} it.
+   *
+   * @return the key for releasing the index, and the index itself.
+   */
+  @NotNull
+  AcquiredIndex acquireIndex(@NotNull List<VirtualFile> metadataFiles) {
+    List<String> key = metadataFiles.stream().map(VirtualFile::getUrl).toList();
+    SharedIndex shared = this.sharedIndexes.compute(key, (k, e) -> {
+      if (e == null) e = new SharedIndex();
+      e.refCount++;
+      return e;
+    });
+    try {
+      return new AcquiredIndex(key, shared.getIndex(metadataFiles));
+    } catch (RuntimeException e) {
+      releaseIndex(key);
+      throw e;
+    }
   }
 
 
-  public MutableReference<MetadataIndex> getIndexForMetaFile(@NotNull VirtualFile metadataFile) {
-    return getIndex(metadataFile);
+  void releaseIndex(@NotNull List<String> key) {
+    this.sharedIndexes.computeIfPresent(key, (k, e) -> --e.refCount > 0 ? e : null);
   }
 
 
   @Override
   public void dispose() {
-    // This is a parent disposable for FileWatcher.
+    // This is a parent disposable for FileWatcher and MetadataFileContainers.
+  }
+
+
+  private void markOutdated(List<? extends VFileEvent> events) {
+    if (this.metadataFiles.isEmpty()) return;
+    for (VFileEvent event : events) {
+      String protocol = event.getFileSystem().getProtocol();
+      markOutdated(protocol, event.getPath(), mayContainMetadataFile(event));
+      if (event instanceof VFileMoveEvent move) {
+        markOutdated(protocol, move.getOldPath(), mayContainMetadataFile(event));
+      } else if (event instanceof VFilePropertyChangeEvent change && change.isRename()) {
+        markOutdated(protocol, change.getOldPath(), mayContainMetadataFile(event));
+      }
+    }
+  }
+
+
+  private void markOutdated(String protocol, String path, boolean includeDescendants) {
+    MetadataFileContainer container = this.metadataFiles.get(VirtualFileManager.constructUrl(protocol, path));
+    if (container != null) {
+      container.markOutdated();
+    }
+    if (includeDescendants) {
+      for (MetadataFileContainer c : this.metadataFiles.values()) {
+        if (isDescendant(c.getFile().getPath(), path)) {
+          c.markOutdated();
+        }
+      }
+    }
+  }
+
+
+  /**
+   * @return true if the path is in the directory, or in the archive, of the ancestor path.
+   */
+  static boolean isDescendant(@NotNull String path, @NotNull String ancestor) {
+    return path.startsWith(ancestor) && path.length() > ancestor.length()
+        && (path.charAt(ancestor.length()) == '/' || path.startsWith(JarFileSystem.JAR_SEPARATOR, ancestor.length()));
+  }
+
+
+  /**
+   * @return true if the file of the event is a directory or an archive, which may contain metadata files.
+   */
+  private static boolean mayContainMetadataFile(VFileEvent event) {
+    if (event instanceof VFileCreateEvent create) {
+      return create.isDirectory() || FileTypeRegistry.getInstance().getFileTypeByFileName(create.getChildName())
+          instanceof ArchiveFileType;
+    }
+    VirtualFile file = event.getFile();
+    return file == null || file.isDirectory() || file.getFileType() instanceof ArchiveFileType;
+  }
+
+
+  record AcquiredIndex(@NotNull List<String> key, @NotNull AggregatedMetadataIndex index) {}
+
+
+  private class SharedIndex {
+    /**
+     * Guarded by {@link ProjectMetadataService#sharedIndexes}.
+     */
+    private int refCount = 0;
+    private final AggregatedMetadataIndex index = new AggregatedMetadataIndex();
+    private volatile boolean populated = false;
+
+
+    AggregatedMetadataIndex getIndex(List<VirtualFile> metadataFiles) {
+      if (populated) {
+        MetadataStatistics.increment(MetadataStatistics.Counter.SHARED_INDEX_HITS);
+      } else {
+        synchronized (this) {
+          if (!populated) {
+            getIndexesForMetaFiles(metadataFiles).forEach(this.index::addLast);
+            // Some of them may contain metadata generated from classes, which changes without VFS events.
+            this.index.addDependency(project.getService(ProjectClassMetadataService.class));
+            this.populated = true;
+          }
+        }
+      }
+      return this.index;
+    }
   }
 
 
   private MetadataFileContainer getIndex(@NotNull VirtualFile metadataFile) {
-    return metadataFiles.computeIfAbsent(metadataFile.getUrl(),
-        url -> new MetadataFileContainer(metadataFile, project));
+    return metadataFiles.computeIfAbsent(metadataFile.getUrl(), url -> {
+      MetadataFileContainer container = new MetadataFileContainer(metadataFile, project);
+      // Release the shared metadata while the project is closed.
+      Disposer.register(this, container);
+      return container;
+    });
   }
 }
@@ -0,0 +1,148 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.source;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ThrowableComputable;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of parsed {@link ConfigurationMetadata}, in the IDE's system directory.
+ * <p>
+ * Metadata files in libraries never change for a specific version, so instead of parsing the json again and again on
+ * every project open, we save the parsed metadata in {@linkplain ConfigurationMetadataExternalizer binary form},
+ * keyed by the hash of the file content, so the same file in different jars (or different projects) hits the same entry.
+ * Entries that have not been used for {@link #EXPIRATION} are removed at startup.
+ */
+@Service(Service.Level.APP)
+public final class ConfigurationMetadataCache {
+  private static final Logger LOG = Logger.getInstance(ConfigurationMetadataCache.class);
+  private static final Duration EXPIRATION = Duration.ofDays(60);
+  private static final String FILE_EXTENSION = ".bin";
+
+  private final Path cacheDir;
+
+
+  public ConfigurationMetadataCache() {
+    this.cacheDir = PathManager.getSystemDir().resolve("spring-boot-assistant").resolve("metadata")
+        .resolve("v" + ConfigurationMetadataExternalizer.VERSION);
+    ApplicationManager.getApplication().executeOnPooledThread(this::removeExpiredEntries);
+  }
+
+
+  public static ConfigurationMetadataCache getInstance() {
+    return ApplicationManager.getApplication().getService(ConfigurationMetadataCache.class);
+  }
+
+
+  /**
+   * Get the cached metadata of the file whose content is {@code content}, or parse and cache it if there isn't.
+   *
+   * @return the cached or parsed metadata, null if the parser returns null.
+   */
+  @Nullable
+  public ConfigurationMetadata computeIfAbsent(
+      byte @NotNull [] content, @NotNull ThrowableComputable<ConfigurationMetadata, IOException> parser
+  ) throws IOException {
+    String key = hash(content);
+    ConfigurationMetadata metadata = load(key);
+    if (metadata != null) {
+      MetadataStatistics.increment(MetadataStatistics.Counter.CACHE_HITS);
+    } else {
+      MetadataStatistics.increment(MetadataStatistics.Counter.CACHE_MISSES);
+      metadata = parser.compute();
+      if (metadata != null) {
+        store(key, metadata);
+      }
+    }
+    return metadata;
+  }
+
+
+  @Nullable
+  private ConfigurationMetadata load(String key) {
+    Path file = this.cacheDir.resolve(key + FILE_EXTENSION);
+    try (InputStream is = Files.newInputStream(file);
+         DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+      ConfigurationMetadata metadata = ConfigurationMetadataExternalizer.INSTANCE.read(in);
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+      return metadata;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (Exception e) {
+      LOG.warn("Corrupted metadata cache " + file + ", will be recreated", e);
+      return null;
+    }
+  }
+
+
+  private void store(String key, ConfigurationMetadata metadata) {
+    Path file = this.cacheDir.resolve(key + FILE_EXTENSION);
+    try {
+      Files.createDirectories(this.cacheDir);
+      // Write to a temp file and move it, so that a concurrent reader never sees a partial file.
+      Path tmp = Files.createTempFile(this.cacheDir, key, ".tmp");
+      try (OutputStream os = Files.newOutputStream(tmp);
+           DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+        ConfigurationMetadataExternalizer.INSTANCE.save(out, metadata);
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      LOG.warn("Cannot write metadata cache " + file, e);
+    }
+  }
+
+
+  private void removeExpiredEntries() {
+    if (!Files.isDirectory(this.cacheDir)) return;
+    Instant expiredBefore = Instant.now().minus(EXPIRATION);
+    try (Stream<Path> files = Files.list(this.cacheDir)) {
+      files.filter(f -> {
+        try {
+          return Files.getLastModifiedTime(f).toInstant().isBefore(expiredBefore);
+        } catch (IOException e) {
+          return false;
+        }
+      }).forEach(f -> {
+        try {
+          Files.deleteIfExists(f);
+        } catch (IOException e) {
+          LOG.debug("Cannot delete expired metadata cache " + f, e);
+        }
+      });
+    } catch (IOException e) {
+      LOG.warn("Cannot clean up metadata cache in " + this.cacheDir, e);
+    }
+  }
+
+
+  private static String hash(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.source;
+
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of {@link ConfigurationMetadata}, which is much faster to read than the json form.
+ * <p>
+ * Values of {@code Object} type (default values, hint values and provider parameters) are read back as what Gson
+ * creates for them: {@link String}, {@link Boolean}, {@link Double}, {@link List} and {@link Map}.
+ */
+public class ConfigurationMetadataExternalizer implements DataExternalizer<ConfigurationMetadata> {
+  public static final ConfigurationMetadataExternalizer INSTANCE = new ConfigurationMetadataExternalizer();
+  /**
+   * Change this while the binary form is changed.
+   */
+  public static final int VERSION = 1;
+
+  private static final byte VALUE_NULL = 0;
+  private static final byte VALUE_STRING = 1;
+  private static final byte VALUE_BOOLEAN = 2;
+  private static final byte VALUE_NUMBER = 3;
+  private static final byte VALUE_LIST = 4;
+  private static final byte VALUE_MAP = 5;
+
+
+  @Override
+  public void save(@NotNull DataOutput out, ConfigurationMetadata metadata) throws IOException {
+    List<ConfigurationMetadata.Group> groups = metadata.getGroups();
+    writeNullableSize(out, groups == null ? -1 : groups.size());
+    if (groups != null) {
+      for (ConfigurationMetadata.Group group : groups) {
+        writeString(out, group.getName());
+        writeString(out, group.getType());
+        writeString(out, group.getDescription());
+        writeString(out, group.getSourceType());
+        writeString(out, group.getSourceMethod());
+      }
+    }
+    List<ConfigurationMetadata.Property> properties = metadata.getProperties();
+    writeNullableSize(out, properties == null ? -1 : properties.size());
+    if (properties != null) {
+      for (ConfigurationMetadata.Property property : properties) {
+        writeString(out, property.getName());
+        writeString(out, property.getType());
+        writeString(out, property.getDescription());
+        writeString(out, property.getSourceType());
+        writeValue(out, property.getDefaultValue());
+        ConfigurationMetadata.Property.Deprecation deprecation = property.getDeprecation();
+        out.writeBoolean(deprecation != null);
+        if (deprecation != null) {
+          writeEnum(out, deprecation.getLevel());
+          writeString(out, deprecation.getReason());
+          writeString(out, deprecation.getReplacement());
+        }
+      }
+    }
+    List<ConfigurationMetadata.Hint> hints = metadata.getHints();
+    writeNullableSize(out, hints == null ? -1 : hints.size());
+    if (hints != null) {
+      for (ConfigurationMetadata.Hint hint : hints) {
+        writeString(out, hint.getName());
+        ConfigurationMetadata.Hint.ValueHint[] values = hint.getValues();
+        writeNullableSize(out, values == null ? -1 : values.length);
+        if (values != null) {
+          for (ConfigurationMetadata.Hint.ValueHint value : values) {
+            writeValue(out, value.getValue());
+            writeString(out, value.getDescription());
+          }
+        }
+        ConfigurationMetadata.Hint.ValueProvider[] providers = hint.getProviders();
+        writeNullableSize(out, providers == null ? -1 : providers.length);
+        if (providers != null) {
+          for (ConfigurationMetadata.Hint.ValueProvider provider : providers) {
+            writeEnum(out, provider.getName());
+            writeValue(out, provider.getParameters());
+          }
+        }
+      }
+    }
+  }
+
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public ConfigurationMetadata read(@NotNull DataInput in) throws IOException {
+    ConfigurationMetadata metadata = new ConfigurationMetadata();
+    // Null lists are read as null, whatever the defaults of the fields are.
+    int size = readNullableSize(in);
+    if (size >= 0) {
+      List<ConfigurationMetadata.Group> groups = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        ConfigurationMetadata.Group group = new ConfigurationMetadata.Group();
+        group.setName(readString(in));
+        group.setType(MetadataStrings.intern(readString(in)));
+        group.setDescription(readString(in));
+        group.setSourceType(MetadataStrings.intern(readString(in)));
+        group.setSourceMethod(readString(in));
+        groups.add(group);
+      }
+      metadata.setGroups(groups);
+    } else {
+      metadata.setGroups(null);
+    }
+    size = readNullableSize(in);
+    if (size >= 0) {
+      List<ConfigurationMetadata.Property> properties = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        ConfigurationMetadata.Property property = new ConfigurationMetadata.Property();
+        property.setName(readString(in));
+        property.setType(MetadataStrings.intern(readString(in)));
+        property.setDescription(readString(in));
+        property.setSourceType(MetadataStrings.intern(readString(in)));
+        property.setDefaultValue(readValue(in));
+        if (in.readBoolean()) {
+          ConfigurationMetadata.Property.Deprecation deprecation = new ConfigurationMetadata.Property.Deprecation();
+          deprecation.setLevel(readEnum(in, ConfigurationMetadata.Property.Deprecation.Level.values()));
+          deprecation.setReason(readString(in));
+          deprecation.setReplacement(readString(in));
+          property.setDeprecation(deprecation);
+        }
+        properties.add(property);
+      }
+      metadata.setProperties(properties);
+    } else {
+      metadata.setProperties(null);
+    }
+    size = readNullableSize(in);
+    if (size >= 0) {
+      List<ConfigurationMetadata.Hint> hints = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        ConfigurationMetadata.Hint hint = new ConfigurationMetadata.Hint();
+        hint.setName(readString(in));
+        int valueSize = readNullableSize(in);
+        if (valueSize >= 0) {
+          ConfigurationMetadata.Hint.ValueHint[] values = new ConfigurationMetadata.Hint.ValueHint[valueSize];
+          for (int j = 0; j < valueSize; j++) {
+            values[j] = new ConfigurationMetadata.Hint.ValueHint();
+            values[j].setValue(readValue(in));
+            values[j].setDescription(readString(in));
+          }
+          hint.setValues(values);
+        }
+        int providerSize = readNullableSize(in);
+        if (providerSize >= 0) {
+          ConfigurationMetadata.Hint.ValueProvider[] providers =
+              new ConfigurationMetadata.Hint.ValueProvider[providerSize];
+          for (int j = 0; j < providerSize; j++) {
+            providers[j] = new ConfigurationMetadata.Hint.ValueProvider();
+            providers[j].setName(readEnum(in, ConfigurationMetadata.Hint.ValueProvider.Type.values()));
+            providers[j].setParameters((Map<String, Object>) readValue(in));
+          }
+          hint.setProviders(providers);
+        }
+        hints.add(hint);
+      }
+      metadata.setHints(hints);
+    } else {
+      metadata.setHints(null);
+    }
+    return metadata;
+  }
+
+
+  /**
+   * @param size size of a collection, or -1 if the collection is null.
+   */
+  private static void writeNullableSize(DataOutput out, int size) throws IOException {
+    DataInputOutputUtil.writeINT(out, size + 1);
+  }
+
+
+  /**
+   * @return size of the collection, or -1 if the collection is null.
+   */
+  private static int readNullableSize(DataInput in) throws IOException {
+    return DataInputOutputUtil.readINT(in) - 1;
+  }
+
+
+  private static void writeString(DataOutput out, @Nullable String str) throws IOException {
+    out.writeBoolean(str != null);
+    if (str != null) {
+      IOUtil.writeUTF(out, str);
+    }
+  }
+
+
+  @Nullable
+  private static String readString(DataInput in) throws IOException {
+    return in.readBoolean() ? IOUtil.readUTF(in) : null;
+  }
+
+
+  private static void writeEnum(DataOutput out, @Nullable Enum<?> value) throws IOException {
+    DataInputOutputUtil.writeINT(out, value == null ? 0 : value.ordinal() + 1);
+  }
+
+
+  @Nullable
+  private static <E extends Enum<E>> E readEnum(DataInput in, E[] values) throws IOException {
+    int ordinal = DataInputOutputUtil.readINT(in) - 1;
+    return ordinal < 0 ? null : values[ordinal];
+  }
+
+
+  private static void writeValue(DataOutput out, @Nullable Object value) throws IOException {
+    switch (value) {
+      case null -> out.writeByte(VALUE_NULL);
+      case Boolean b -> {
+        out.writeByte(VALUE_BOOLEAN);
+        out.writeBoolean(b);
+      }
+      case Number n -> {
+        out.writeByte(VALUE_NUMBER);
+        out.writeDouble(n.doubleValue());
+      }
+      case List<?> list -> {
+        out.writeByte(VALUE_LIST);
+        DataInputOutputUtil.writeINT(out, list.size());
+        for (Object element : list) {
+          writeValue(out, element);
+        }
+      }
+      // Read back as a list, as the json reader reads arrays.
+      case Object[] array -> writeValue(out, Arrays.asList(array));
+      case Map<?, ?> map -> {
+        out.writeByte(VALUE_MAP);
+        DataInputOutputUtil.writeINT(out, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          IOUtil.writeUTF(out, String.valueOf(entry.getKey()));
+          writeValue(out, entry.getValue());
+        }
+      }
+      default -> {
+        out.writeByte(VALUE_STRING);
+        IOUtil.writeUTF(out, value.toString());
+      }
+    }
+  }
+
+
+  @Nullable
+  private static Object readValue(DataInput in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        return IOUtil.readUTF(in);
+      case VALUE_BOOLEAN:
+        return in.readBoolean();
+      case VALUE_NUMBER:
+        return in.readDouble();
+      case VALUE_LIST: {
+        int size = DataInputOutputUtil.readINT(in);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in));
+        }
+        return list;
+      }
+      case VALUE_MAP: {
+        int size = DataInputOutputUtil.readINT(in);
+        Map<String, Object> map = new LinkedHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+          map.put(IOUtil.readUTF(in), readValue(in));
+        }
+        return map;
+      }
+      default:
+        throw new IOException("Unknown value type: " + type);
+    }
+  }
+}
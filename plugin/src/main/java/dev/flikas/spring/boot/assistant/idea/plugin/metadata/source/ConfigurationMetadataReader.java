@@ -0,0 +1,287 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.source;
+
+import com.google.gson.Strictness;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A streaming reader of {@code spring-configuration-metadata.json}, reads {@link ConfigurationMetadata}
+ * token by token instead of binding json to objects by reflection.
+ * <p>
+ * The result is the same as {@code new Gson().fromJson(reader, ConfigurationMetadata.class)}, except that the
+ * repeated strings, like type names and source types, are {@linkplain MetadataStrings#intern(String) interned},
+ * and null elements of the lists (e.g. of a trailing comma) are skipped.
+ * <p>
+ * Like Gson, the json is read leniently, because some third-party metadata files have comments, unquoted names, etc.
+ */
+public class ConfigurationMetadataReader {
+  private static final Map<String, ConfigurationMetadata.Property.Deprecation.Level> DEPRECATION_LEVELS =
+      serializedNames(ConfigurationMetadata.Property.Deprecation.Level.class);
+  private static final Map<String, ConfigurationMetadata.Hint.ValueProvider.Type> PROVIDER_TYPES =
+      serializedNames(ConfigurationMetadata.Hint.ValueProvider.Type.class);
+
+  private final JsonReader in;
+
+
+  private ConfigurationMetadataReader(Reader reader) {
+    this.in = new JsonReader(reader);
+    this.in.setStrictness(Strictness.LENIENT);
+  }
+
+
+  /**
+   * @return the metadata, or null if the input is empty.
+   */
+  @Nullable
+  public static ConfigurationMetadata read(@NotNull Reader reader) throws IOException {
+    ConfigurationMetadataReader r = new ConfigurationMetadataReader(reader);
+    try {
+      r.in.peek();
+    } catch (EOFException e) {
+      return null;
+    }
+    return r.readMetadata();
+  }
+
+
+  private ConfigurationMetadata readMetadata() throws IOException {
+    ConfigurationMetadata metadata = new ConfigurationMetadata();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "groups" -> metadata.setGroups(readList(this::readGroup));
+        case "properties" -> metadata.setProperties(readList(this::readProperty));
+        case "hints" -> metadata.setHints(readList(this::readHint));
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return metadata;
+  }
+
+
+  private ConfigurationMetadata.Group readGroup() throws IOException {
+    ConfigurationMetadata.Group group = new ConfigurationMetadata.Group();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "name" -> group.setName(readString());
+        case "type" -> group.setType(readInternedString());
+        case "description" -> group.setDescription(readString());
+        case "sourceType" -> group.setSourceType(readInternedString());
+        case "sourceMethod" -> group.setSourceMethod(readString());
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return group;
+  }
+
+
+  private ConfigurationMetadata.Property readProperty() throws IOException {
+    ConfigurationMetadata.Property property = new ConfigurationMetadata.Property();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "name" -> property.setName(readString());
+        case "type" -> property.setType(readInternedString());
+        case "description" -> property.setDescription(readString());
+        case "sourceType" -> property.setSourceType(readInternedString());
+        case "defaultValue" -> property.setDefaultValue(readValue());
+        case "deprecation" -> property.setDeprecation(readDeprecation());
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return property;
+  }
+
+
+  @Nullable
+  private ConfigurationMetadata.Property.Deprecation readDeprecation() throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    ConfigurationMetadata.Property.Deprecation deprecation = new ConfigurationMetadata.Property.Deprecation();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "level" -> deprecation.setLevel(readEnum(DEPRECATION_LEVELS));
+        case "reason" -> deprecation.setReason(readString());
+        case "replacement" -> deprecation.setReplacement(readString());
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return deprecation;
+  }
+
+
+  private ConfigurationMetadata.Hint readHint() throws IOException {
+    ConfigurationMetadata.Hint hint = new ConfigurationMetadata.Hint();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "name" -> hint.setName(readString());
+        case "values" -> {
+          List<ConfigurationMetadata.Hint.ValueHint> values = readList(this::readValueHint);
+          hint.setValues(values == null ? null : values.toArray(ConfigurationMetadata.Hint.ValueHint[]::new));
+        }
+        case "providers" -> {
+          List<ConfigurationMetadata.Hint.ValueProvider> providers = readList(this::readValueProvider);
+          hint.setProviders(
+              providers == null ? null : providers.toArray(ConfigurationMetadata.Hint.ValueProvider[]::new));
+        }
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return hint;
+  }
+
+
+  private ConfigurationMetadata.Hint.ValueHint readValueHint() throws IOException {
+    ConfigurationMetadata.Hint.ValueHint valueHint = new ConfigurationMetadata.Hint.ValueHint();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "value" -> valueHint.setValue(readValue());
+        case "description" -> valueHint.setDescription(readString());
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return valueHint;
+  }
+
+
+  @SuppressWarnings("unchecked")
+  private ConfigurationMetadata.Hint.ValueProvider readValueProvider() throws IOException {
+    ConfigurationMetadata.Hint.ValueProvider provider = new ConfigurationMetadata.Hint.ValueProvider();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "name" -> provider.setName(readEnum(PROVIDER_TYPES));
+        case "parameters" -> provider.setParameters((Map<String, Object>) readValue());
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return provider;
+  }
+
+
+  @Nullable
+  private <T> List<T> readList(ItemReader<T> itemReader) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    List<T> list = new ArrayList<>();
+    in.beginArray();
+    while (in.hasNext()) {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+      } else {
+        list.add(itemReader.read());
+      }
+    }
+    in.endArray();
+    return list;
+  }
+
+
+  @Nullable
+  private String readString() throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+
+
+  @Nullable
+  private String readInternedString() throws IOException {
+    return MetadataStrings.intern(readString());
+  }
+
+
+  @Nullable
+  private <E extends Enum<E>> E readEnum(Map<String, E> values) throws IOException {
+    String name = readString();
+    return name == null ? null : values.get(name);
+  }
+
+
+  /**
+   * Read any json value, as what Gson does for {@code Object} type.
+   */
+  @Nullable
+  private Object readValue() throws IOException {
+    switch (in.peek()) {
+      case STRING:
+        return in.nextString();
+      case NUMBER:
+        return in.nextDouble();
+      case BOOLEAN:
+        return in.nextBoolean();
+      case NULL:
+        in.nextNull();
+        return null;
+      case BEGIN_ARRAY: {
+        List<Object> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+          list.add(readValue());
+        }
+        in.endArray();
+        return list;
+      }
+      case BEGIN_OBJECT: {
+        Map<String, Object> map = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+          map.put(in.nextName(), readValue());
+        }
+        in.endObject();
+        return map;
+      }
+      default:
+        throw new IllegalStateException("Unexpected token " + in.peek() + " at " + in.getPath());
+    }
+  }
+
+
+  private static <E extends Enum<E>> Map<String, E> serializedNames(Class<E> enumClass) {
+    Map<String, E> names = new HashMap<>();
+    for (E value : enumClass.getEnumConstants()) {
+      try {
+        SerializedName serializedName = enumClass.getField(value.name()).getAnnotation(SerializedName.class);
+        names.put(serializedName != null ? serializedName.value() : value.name(), value);
+      } catch (NoSuchFieldException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return names;
+  }
+
+
+  @FunctionalInterface
+  private interface ItemReader<T> {
+    T read() throws IOException;
+  }
+}
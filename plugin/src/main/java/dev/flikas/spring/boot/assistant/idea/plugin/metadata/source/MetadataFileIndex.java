@@ -1,5 +1,7 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.metadata.source;
 
+import com.intellij.openapi.diagnostic.ControlFlowException;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
@@ -13,16 +15,30 @@ import com.intellij.util.indexing.ID;
 import com.intellij.util.indexing.ScalarIndexExtension;
 import com.intellij.util.io.EnumeratorStringDescriptor;
 import com.intellij.util.io.KeyDescriptor;
+import com.intellij.util.text.CharSequenceReader;
 import dev.flikas.spring.boot.assistant.idea.plugin.misc.ModuleRootUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
-
+import java.util.Set;
+
+/**
+ * Index of metadata files.
+ * <p>
+ * Besides a constant key that every metadata file has, for finding all metadata files in a scope,
+ * the names of all properties, groups and hints defined in a file are its keys too, in the form of
+ * {@link PropertyName#adapt(String)}, so that the names in a file are {@linkplain #getNames(VirtualFile, Project) known}
+ * without parsing it.
+ */
 public class MetadataFileIndex extends ScalarIndexExtension<String> {
+  private static final Logger LOG = Logger.getInstance(MetadataFileIndex.class);
   public static final String META_FILE_DIR = "META-INF";
   public static final String METADATA_FILE_NAME = "spring-configuration-metadata.json";
   public static final String METADATA_FILE = META_FILE_DIR + "/" + METADATA_FILE_NAME;
@@ -32,6 +48,10 @@ public class MetadataFileIndex extends ScalarIndexExtension<String> {
   public static final ID<String, Void> NAME = ID.create(
       PLUGIN_INDEX_NAMESPACE + MetadataFileIndex.class.getSimpleName());
 
+  /**
+   * The constant key of every metadata file, names are keyed in their adapted form, which is lower-case,
+   * so it won't conflict with one.
+   */
   private static final String UNIQUE_KEY = "META";
 
 
@@ -44,6 +64,20 @@ public class MetadataFileIndex extends ScalarIndexExtension<String> {
   }
 
 
+  /**
+   * @return names of all properties, groups and hints defined in the metadata file, in adapted form,
+   * or an empty set if the file is not indexed.
+   */
+  @NotNull
+  public static Set<String> getNames(@NotNull VirtualFile file, @NotNull Project project) {
+    Set<String> keys = FileBasedIndex.getInstance().getFileData(NAME, file, project).keySet();
+    if (!keys.contains(UNIQUE_KEY)) return keys;
+    Set<String> names = new HashSet<>(keys);
+    names.remove(UNIQUE_KEY);
+    return names;
+  }
+
+
   public static boolean maybeMetaFile(VirtualFile file) {
     String name = file.getName();
     if (!name.equals(METADATA_FILE_NAME) && !name.equals(ADDITIONAL_METADATA_FILE_NAME)) {
@@ -108,7 +142,28 @@ public class MetadataFileIndex extends ScalarIndexExtension<String> {
     return new DataIndexer<>() {
       @Override
       public @NotNull Map<String, Void> map(@NotNull FileContent inputData) {
-        return Collections.singletonMap(UNIQUE_KEY, null);
+        Map<String, Void> keys = new HashMap<>();
+        keys.put(UNIQUE_KEY, null);
+        ConfigurationMetadata metadata;
+        try (Reader reader = new CharSequenceReader(inputData.getContentAsText())) {
+          metadata = ConfigurationMetadataReader.read(reader);
+        } catch (IOException | RuntimeException e) {
+          // Canceled indexing must not be stored as the result of the file.
+          if (e instanceof ControlFlowException) throw (RuntimeException) e;
+          LOG.debug("Cannot index names in " + inputData.getFile() + ", the file is malformed", e);
+          return keys;
+        }
+        if (metadata == null) return keys;
+        if (metadata.getGroups() != null) {
+          metadata.getGroups().forEach(g -> addName(keys, g.getName()));
+        }
+        if (metadata.getProperties() != null) {
+          metadata.getProperties().forEach(p -> addName(keys, p.getName()));
+        }
+        if (metadata.getHints() != null) {
+          metadata.getHints().forEach(h -> addName(keys, h.getName()));
+        }
+        return keys;
       }
     };
   }
@@ -128,12 +183,22 @@ public class MetadataFileIndex extends ScalarIndexExtension<String> {
 
   @Override
   public int getVersion() {
-    return 1;
+    return 2;
   }
 
 
   @Override
   public boolean dependsOnFileContent() {
-    return false;
+    return true;
+  }
+
+
+  private static void addName(Map<String, Void> keys, @Nullable String name) {
+    if (name == null) return;
+    // Adapt the name as what lookups do, as some metadata files contain non-canonical names.
+    PropertyName propertyName = PropertyName.adapt(name);
+    if (!propertyName.isEmpty()) {
+      keys.put(propertyName.toString(), null);
+    }
   }
 }
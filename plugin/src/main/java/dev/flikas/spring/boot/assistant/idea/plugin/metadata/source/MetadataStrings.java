@@ -0,0 +1,27 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.source;
+
+import com.intellij.util.containers.Interner;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Deduplicates the highly repeated strings in metadata, like type names, source types and name elements.
+ * <p>
+ * A large project loads hundreds of metadata files, in which the same types (java.lang.String, java.time.Duration, ...)
+ * and source types appear thousands of times. The pool is application wide, as the metadata is shared between
+ * projects, and weak, so that strings of unloaded metadata can be collected.
+ */
+public final class MetadataStrings {
+  private static final Interner<String> INTERNER = Interner.createWeakInterner();
+
+
+  private MetadataStrings() {
+  }
+
+
+  @Contract("null -> null; !null -> !null")
+  @Nullable
+  public static String intern(@Nullable String str) {
+    return str == null ? null : INTERNER.intern(str);
+  }
+}
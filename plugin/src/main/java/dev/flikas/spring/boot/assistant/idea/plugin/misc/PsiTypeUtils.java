@@ -1,8 +1,10 @@
 package dev.flikas.spring.boot.assistant.idea.plugin.misc;
 
+import com.intellij.lang.java.JavaLanguage;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.psi.CommonClassNames;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiArrayType;
@@ -16,6 +18,9 @@ import com.intellij.psi.PsiParameter;
 import com.intellij.psi.PsiType;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.ProjectScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTypesUtil;
 import com.intellij.psi.util.PsiUtil;
 import com.intellij.psi.util.TypeConversionUtil;
@@ -25,6 +30,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Stream;
 
 @UtilityClass
@@ -42,18 +50,41 @@ public class PsiTypeUtils {
   }
 
 
+  /**
+   * Create type from its canonical text, types are cached by text in project,
+   * so that the thousands of properties which have the same type will share the same PsiType instance.
+   * <p>
+   * The cache is dropped while any java code or project's dependencies changed.
+   * <p>
+   * The type is created outside the cache map, a read action must not be waited for while a bin of the map is locked.
+   */
   @Nullable
   public static PsiType createTypeFromText(Project project, String type) {
-    PsiJavaParserFacade parser = JavaPsiFacade.getInstance(project).getParserFacade();
-    // When reference an inner class, we should use A.B not A$B but spring does.
-    String typeString = type.replace('$', '.');
     return ReadAction.compute(() -> {
-      PsiType t = parser.createTypeFromText(typeString, null);
-      return PsiTypeUtils.isPhysical(t) ? t : null;
+      ConcurrentMap<String, Optional<PsiType>> cache = CachedValuesManager.getManager(project).getCachedValue(project,
+          () -> CachedValueProvider.Result.create(new ConcurrentHashMap<>(),
+              PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE),
+              ProjectRootManager.getInstance(project)));
+      Optional<PsiType> psiType = cache.get(type);
+      if (psiType == null) {
+        psiType = Optional.ofNullable(doCreateTypeFromText(project, type));
+        Optional<PsiType> existing = cache.putIfAbsent(type, psiType);
+        if (existing != null) psiType = existing;
+      }
+      return psiType.orElse(null);
     });
   }
 
 
+  @Nullable
+  private static PsiType doCreateTypeFromText(Project project, String type) {
+    PsiJavaParserFacade parser = JavaPsiFacade.getInstance(project).getParserFacade();
+    // When reference an inner class, we should use A.B not A$B but spring does.
+    PsiType t = parser.createTypeFromText(type.replace('$', '.'), null);
+    return PsiTypeUtils.isPhysical(t) ? t : null;
+  }
+
+
   @Nullable
   public static PsiClass findClass(Project project, String classFQN) {
     JavaPsiFacade jpf = JavaPsiFacade.getInstance(project);
@@ -0,0 +1,34 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.report;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.Messages;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.MetadataStatistics;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Shows the {@link MetadataStatistics}, and writes them to the IDE log, so that they can be attached to a report.
+ */
+public class MetadataStatisticsAction extends DumbAwareAction {
+  private static final Logger LOG = Logger.getInstance(MetadataStatisticsAction.class);
+
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    String report = MetadataStatistics.report();
+    LOG.info("Spring configuration metadata statistics:\n" + report);
+    int answer = Messages.showDialog(e.getProject(), report, "Spring Boot Configuration Metadata Statistics",
+        new String[]{"Close", "Reset"}, 0, Messages.getInformationIcon());
+    if (answer == 1) {
+      MetadataStatistics.reset();
+    }
+  }
+
+
+  @Override
+  public @NotNull ActionUpdateThread getActionUpdateThread() {
+    return ActionUpdateThread.BGT;
+  }
+}
@@ -0,0 +1,162 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import com.intellij.testFramework.junit5.TestApplication;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestApplication
+class AggregatedMetadataIndexTest {
+  @Test
+  void wildcardNameAfterEqualName() {
+    TestMetadataIndex first = TestMetadataIndex.ofProperties("a.x.b");
+    TestMetadataIndex second = TestMetadataIndex.ofProperties("a[*].b");
+    AggregatedMetadataIndex index = new AggregatedMetadataIndex(first, second);
+    assertSame(first, index.getProperty("a.x.b").getIndex());
+    assertSame(second, index.getProperty("a.y.b").getIndex());
+    assertSame(second, index.getProperty("a[y].b").getIndex());
+    assertNull(index.getProperty("a.y.c"));
+  }
+
+
+  @Test
+  void firstIndexWins() {
+    TestMetadataIndex first = TestMetadataIndex.ofProperties("a[*].b", "c.d");
+    TestMetadataIndex second = TestMetadataIndex.ofProperties("a.x.b", "c.d");
+    AggregatedMetadataIndex index = new AggregatedMetadataIndex(first, second);
+    assertSame(first, index.getProperty("a.x.b").getIndex());
+    assertSame(first, index.getProperty("C.D").getIndex());
+  }
+
+
+  @Test
+  void nearestParentPropertyOfFirstIndex() {
+    TestMetadataIndex first = TestMetadataIndex.ofProperties("a");
+    TestMetadataIndex second = TestMetadataIndex.ofProperties("a.b", "c.d");
+    AggregatedMetadataIndex index = new AggregatedMetadataIndex(first, second);
+    // Same as asking each index in order, the first index that has any parent wins.
+    assertSame(first, index.getNearestParentProperty("a.b.c").getIndex());
+    assertSame(second, index.getNearestParentProperty("c.d.e").getIndex());
+    assertNull(index.getNearestParentProperty("e.f"));
+  }
+
+
+  @Test
+  void nestedAggregatedIndexes() {
+    TestMetadataIndex first = TestMetadataIndex.ofProperties("a.b");
+    TestMetadataIndex second = TestMetadataIndex.ofProperties("a[*]");
+    TestMetadataIndex third = TestMetadataIndex.ofProperties("a.c");
+    AggregatedMetadataIndex index = new AggregatedMetadataIndex(new AggregatedMetadataIndex(first, second), third);
+    assertSame(first, index.getProperty("a.b").getIndex());
+    assertSame(second, index.getProperty("a.c").getIndex());
+    assertSame(first, index.getNearestParentProperty("a.b.x").getIndex());
+  }
+
+
+  @Test
+  void childCheckedOnlyAfterReferenceChanged() {
+    TestMetadataIndex before = TestMetadataIndex.ofProperties("a");
+    TestMetadataIndex after = TestMetadataIndex.ofProperties("b");
+    MetadataIndex[] current = {before};
+    int[] dereferences = {0};
+    AggregatedMetadataIndex index = new AggregatedMetadataIndex();
+    index.addLast(() -> {
+      dereferences[0]++;
+      return current[0];
+    });
+    assertSame(before, index.getProperty("a").getIndex());
+    current[0] = after;
+    assertSame(before, index.getProperty("a").getIndex());
+    assertEquals(1, dereferences[0]);
+    AggregatedMetadataIndex.referenceChanged();
+    assertNull(index.getProperty("a"));
+    assertSame(after, index.getProperty("b").getIndex());
+    assertEquals(2, dereferences[0]);
+  }
+
+
+  @Test
+  void referenceRetriedUntilLoaded() {
+    TestMetadataIndex lazy = TestMetadataIndex.ofProperties("b.c");
+    LazyReference reference = new LazyReference(lazy, "b.c");
+    reference.loadable = false;
+    AggregatedMetadataIndex index = new AggregatedMetadataIndex();
+    index.addLast(reference);
+    assertNull(index.getProperty("b.c"));
+    assertFalse(reference.isLoaded());
+    reference.loadable = true;
+    assertSame(lazy, index.getProperty("b.c").getIndex());
+    assertTrue(reference.isLoaded());
+  }
+
+
+  @Test
+  void referenceLoadedByEnclosingIndex() {
+    TestMetadataIndex lazy = TestMetadataIndex.ofProperties("b.c");
+    LazyReference reference = new LazyReference(lazy, "b.c");
+    AggregatedMetadataIndex child = new AggregatedMetadataIndex(TestMetadataIndex.ofProperties("a"));
+    child.addLast(reference);
+    AggregatedMetadataIndex parent = new AggregatedMetadataIndex(child);
+    assertSame(child.getProperty("a"), parent.getProperty("a"));
+    assertFalse(reference.isLoaded());
+    assertSame(lazy, parent.getProperty("b.c").getIndex());
+    assertEquals(1, reference.loads);
+    // The child inherits the reference, it should see what has been loaded by the parent.
+    assertSame(lazy, child.getProperty("b.c").getIndex());
+    assertEquals(1, reference.loads);
+  }
+
+
+  /**
+   * A reference that may not be able to load, like a metadata file in dumb mode.
+   */
+  private static class LazyReference implements LazyMetadataIndexReference {
+    private final MetadataIndex index;
+    private final NameBloomFilter names;
+    private boolean loadable = true;
+    private boolean loaded = false;
+    private int loads = 0;
+
+
+    LazyReference(MetadataIndex index, String... names) {
+      this.index = index;
+      this.names = NameBloomFilter.of(List.of(names));
+    }
+
+
+    @Override
+    public @Nullable MetadataIndex dereference() {
+      if (!loaded && loadable) {
+        loaded = true;
+        loads++;
+      }
+      return loaded ? index : null;
+    }
+
+
+    @Override
+    public boolean isLoaded() {
+      return loaded;
+    }
+
+
+    @Override
+    public boolean mightContain(@NotNull NameBloomFilter.Probe probe) {
+      return names.mightContain(probe);
+    }
+
+
+    @Override
+    public @NotNull MetadataSource getSource() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
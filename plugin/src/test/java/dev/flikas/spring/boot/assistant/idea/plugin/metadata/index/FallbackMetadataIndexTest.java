@@ -0,0 +1,56 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FallbackMetadataIndexTest {
+  private final TestMetadataIndex primary = TestMetadataIndex.ofProperties("a.b", "c");
+  private final TestMetadataIndex fallback = TestMetadataIndex.ofProperties("a.b", "a.c", "c.d.e");
+  private final FallbackMetadataIndex index = new FallbackMetadataIndex(primary, fallback);
+
+
+  @Test
+  void primaryWins() {
+    assertSame(primary, Objects.requireNonNull(index.getProperty("a.b")).getIndex());
+    assertSame(fallback, Objects.requireNonNull(index.getProperty("a.c")).getIndex());
+    assertSame(primary, Objects.requireNonNull(index.getPropertyOrGroup("A.B")).getIndex());
+    assertNull(index.getProperty("a.d"));
+    // Same as an aggregated index, the primary one wins if it has any parent.
+    assertSame(primary, Objects.requireNonNull(index.getNearestParentProperty("c.d.e.f")).getIndex());
+    assertSame(fallback, Objects.requireNonNull(index.getNearestParentProperty("a.c.x")).getIndex());
+  }
+
+
+  @Test
+  void properties() {
+    Map<PropertyName, MetadataProperty> properties = index.getProperties();
+    assertEquals(4, properties.size());
+    assertSame(primary, properties.get(PropertyName.of("a.b")).getIndex());
+    assertSame(fallback, properties.get(PropertyName.of("c.d.e")).getIndex());
+    // Entries of the primary index first, then the ones only in the fallback index.
+    assertEquals(List.of(primary, primary, fallback, fallback),
+        properties.values().stream().map(MetadataProperty::getIndex).toList());
+    assertEquals(Set.of("a.b", "c", "a.c", "c.d.e"),
+        properties.keySet().stream().map(PropertyName::toString).collect(Collectors.toSet()));
+  }
+
+
+  @Test
+  void nameTree() {
+    NameTreeNode a = Objects.requireNonNull(index.findInNameTrie("a"));
+    assertEquals(List.of("b", "c"), a.getChildren("").stream().map(NameTreeNode::getKey).toList());
+    NameTreeNode b = Objects.requireNonNull(index.findInNameTrie("a.b"));
+    assertEquals(2, b.getData().size());
+    assertNull(index.findInNameTrie("x"));
+  }
+}
@@ -0,0 +1,91 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MergedNameTreeNodeTest {
+  private final TestMetadataIndex first = TestMetadataIndex.ofProperties("spring.a", "x.y");
+  private final TestMetadataIndex second = TestMetadataIndex.ofProperties("spring.a", "spring.b", "m[*].n");
+  private final TestMetadataIndex third = TestMetadataIndex.ofProperties("spring.a");
+
+
+  @Test
+  void ofNoneOrOne() {
+    assertNull(MergedNameTreeNode.of(List.of()));
+    NameTreeNode root = root(first);
+    assertSame(root, MergedNameTreeNode.of(List.of(root)));
+  }
+
+
+  @Test
+  void overlappingChildren() {
+    NameTreeNode merged = merge(first, second);
+    assertEquals(List.of("m", "spring", "x"), keys(merged.getChildren("")));
+    NameTreeNode spring = Objects.requireNonNull(merged.findChild(PropertyName.adapt("spring")));
+    assertEquals(List.of("a", "b"), keys(spring.getChildren("")));
+    assertEquals(List.of("a"), keys(spring.getChildren("a")));
+    assertEquals(2, Objects.requireNonNull(spring.findChild(PropertyName.adapt("a"))).getData().size());
+    assertTrue(Objects.requireNonNull(merged.findChild(PropertyName.adapt("m"))).isIndexed());
+    assertFalse(spring.isIndexed());
+  }
+
+
+  @Test
+  void disjointChildren() {
+    NameTreeNode merged = merge(first, second);
+    assertEquals(List.of(property(first, "x.y")),
+        Objects.requireNonNull(merged.findChild(PropertyName.adapt("x.y"))).getData());
+    assertEquals(List.of(property(second, "spring.b")),
+        Objects.requireNonNull(merged.findChild(PropertyName.adapt("spring.b"))).getData());
+    assertEquals(List.of(property(second, "m[*].n")),
+        Objects.requireNonNull(merged.findChild(PropertyName.adapt("m.any.n"))).getData());
+    assertEquals(List.of("y"), keys(Objects.requireNonNull(merged.findChild(PropertyName.adapt("x"))).getChildren("")));
+    assertTrue(Objects.requireNonNull(merged.findChild(PropertyName.adapt("x.y"))).getChildren("").isEmpty());
+    assertNull(merged.findChild(PropertyName.adapt("spring.c")));
+  }
+
+
+  @Test
+  void dataInOrderOfTrees() {
+    NameTreeNode merged = merge(first, second);
+    assertEquals(List.of(property(first, "spring.a"), property(second, "spring.a")),
+        Objects.requireNonNull(merged.findChild(PropertyName.adapt("spring.a"))).getData());
+    // A merged node in the list is flattened, in its place.
+    NameTreeNode nested = Objects.requireNonNull(MergedNameTreeNode.of(List.of(merged, root(third))));
+    assertEquals(List.of(property(first, "spring.a"), property(second, "spring.a"), property(third, "spring.a")),
+        Objects.requireNonNull(nested.findChild(PropertyName.adapt("spring.a"))).getData());
+    nested = Objects.requireNonNull(MergedNameTreeNode.of(List.of(root(third), merged)));
+    assertEquals(List.of(property(third, "spring.a"), property(first, "spring.a"), property(second, "spring.a")),
+        Objects.requireNonNull(nested.findChild(PropertyName.adapt("spring.a"))).getData());
+  }
+
+
+  private static NameTreeNode merge(MetadataIndex... indexes) {
+    return Objects.requireNonNull(MergedNameTreeNode.of(Arrays.stream(indexes).map(MergedNameTreeNodeTest::root).toList()));
+  }
+
+
+  private static NameTreeNode root(MetadataIndex index) {
+    return Objects.requireNonNull(index.findInNameTrie(""));
+  }
+
+
+  private static MetadataItem property(MetadataIndex index, String name) {
+    return index.getProperties().get(PropertyName.of(name));
+  }
+
+
+  private static List<String> keys(List<NameTreeNode> nodes) {
+    return nodes.stream().map(NameTreeNode::getKey).toList();
+  }
+}
@@ -0,0 +1,87 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MountedMetadataIndexTest {
+  private final TestMetadataIndex template = new TestMetadataIndex(TestMetadataIndex.metadata(
+      List.of("ssl"), List.of("host", "ssl.enabled", "labels"), List.of("labels.keys", "labels.values")));
+  private final MountedMetadataIndex index = new MountedMetadataIndex(PropertyName.of("app.servers[*]"), template);
+
+
+  @Test
+  void properties() {
+    MetadataProperty host = Objects.requireNonNull(index.getProperty("app.servers.foo.host"));
+    assertEquals("app.servers[*].host", host.getNameStr());
+    assertEquals("app.servers[*].host", host.getMetadata().getName());
+    assertSame(index, host.getIndex());
+    assertSame(host, index.getProperty("app.servers[bar].host"));
+    assertNull(index.getProperty("app.servers"));
+    assertNull(index.getProperty("app.clients.foo.host"));
+    assertEquals(3, index.getProperties().size());
+    assertTrue(index.getProperties().containsKey(PropertyName.of("app.servers[*].ssl.enabled")));
+  }
+
+
+  @Test
+  void groups() {
+    MetadataGroup ssl = Objects.requireNonNull(index.getGroup("app.servers.foo.ssl"));
+    assertEquals("app.servers[*].ssl", ssl.getNameStr());
+    assertEquals("app.servers[*].ssl", ssl.getMetadata().getName());
+    assertSame(index, ssl.getIndex());
+    assertSame(ssl, index.getPropertyOrGroup("app.servers.foo.ssl"));
+    assertEquals(List.of(PropertyName.of("app.servers[*].ssl")), List.copyOf(index.getGroups().keySet()));
+  }
+
+
+  @Test
+  void hints() {
+    MetadataHint keys = Objects.requireNonNull(index.getHint("app.servers.foo.labels.keys"));
+    assertEquals("app.servers[*].labels.keys", keys.getMetadata().getName());
+    assertSame(template.getHint("labels.keys").getValues(), keys.getValues());
+    assertSame(keys, index.getHint("app.servers[bar].labels.keys"));
+    assertEquals("labels.keys", template.getHint("labels.keys").getMetadata().getName());
+    assertNull(index.getHint("labels.keys"));
+    assertEquals(2, index.getHints().size());
+    assertSame(keys, index.getHints().get(PropertyName.of("app.servers[*].labels.keys")));
+    assertEquals("app.servers[*].labels.values",
+        index.getHints().get(PropertyName.of("app.servers[*].labels.values")).getMetadata().getName());
+  }
+
+
+  @Test
+  void nearestParentProperty() {
+    MetadataProperty labels = Objects.requireNonNull(index.getNearestParentProperty("app.servers.foo.labels.x.y"));
+    assertEquals("app.servers[*].labels", labels.getNameStr());
+    assertSame(index.getProperty("app.servers.foo.labels"), labels);
+    assertNull(index.getNearestParentProperty("app.servers.foo"));
+    assertNull(index.getNearestParentProperty("app.clients.foo.labels.x"));
+  }
+
+
+  @Test
+  void nameTree() {
+    NameTreeNode servers = Objects.requireNonNull(index.findInNameTrie("app.servers"));
+    assertEquals("servers", servers.getKey());
+    assertTrue(servers.isIndexed());
+    NameTreeNode host = Objects.requireNonNull(index.findInNameTrie("app.servers.foo.host"));
+    assertEquals(List.of(index.getProperty("app.servers.foo.host")), host.getData());
+    assertNull(index.findInNameTrie("app.clients"));
+  }
+
+
+  @Test
+  void emptyMountPoint() {
+    MountedMetadataIndex root = new MountedMetadataIndex(PropertyName.EMPTY, template);
+    assertEquals("host", Objects.requireNonNull(root.getProperty("host")).getNameStr());
+    assertEquals(3, Objects.requireNonNull(root.findInNameTrie("")).getChildren("").size());
+  }
+}
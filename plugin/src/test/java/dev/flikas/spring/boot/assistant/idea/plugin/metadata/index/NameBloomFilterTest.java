@@ -0,0 +1,45 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameBloomFilterTest {
+  private final NameBloomFilter filter = NameBloomFilter.of(List.of("spring.datasource.url", "logging.level"));
+
+
+  @Test
+  void mightContain() {
+    assertTrue(filter.mightContain(probe("spring")));
+    assertTrue(filter.mightContain(probe("spring.datasource.url")));
+    // Under a property, there may be generated metadata of a map/collection.
+    assertTrue(filter.mightContain(probe("logging.level.org.springframework")));
+    assertTrue(filter.mightContain(probe("")));
+    assertFalse(filter.mightContain(probe("my.custom.key")));
+  }
+
+
+  @Test
+  void mightContainNameOrPrefix() {
+    assertTrue(filter.mightContainNameOrPrefix(probe("spring.datasource")));
+    assertFalse(filter.mightContainNameOrPrefix(probe("logging.level.root")));
+  }
+
+
+  @Test
+  void mightContainName() {
+    assertTrue(filter.mightContainName(probe("spring.datasource.url"), 3));
+    assertTrue(filter.mightContainName(probe("Spring.Data-Source.URL"), 3));
+    assertTrue(filter.mightContainName(probe("logging[level].root"), 2));
+    assertFalse(filter.mightContainName(probe("spring.datasource.url"), 2));
+  }
+
+
+  private static NameBloomFilter.Probe probe(String name) {
+    return NameBloomFilter.Probe.of(PropertyName.adapt(name));
+  }
+}
@@ -0,0 +1,93 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.PropertyName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameTrieTest {
+  private final TestMetadataIndex index = TestMetadataIndex.ofProperties(
+      "spring.datasource.url", "spring.datasource.username", "spring.jpa.show-sql", "a[*].b", "c[#]");
+
+
+  @Test
+  void emptyTrie() {
+    NameTreeNode root = new NameTrie.Builder().build().getRoot();
+    assertEquals("", root.getKey());
+    assertTrue(root.getData().isEmpty());
+    assertFalse(root.isIndexed());
+    assertTrue(root.getChildren("").isEmpty());
+    assertSame(root, root.findChild(PropertyName.adapt("")));
+    assertNull(root.findChild(PropertyName.adapt("spring")));
+  }
+
+
+  @Test
+  void findChild() {
+    NameTreeNode root = build().getRoot();
+    NameTreeNode url = Objects.requireNonNull(root.findChild(PropertyName.adapt("Spring.Data-Source.URL")));
+    assertEquals("url", url.getKey());
+    assertEquals(List.of(item("spring.datasource.url")), url.getData());
+    NameTreeNode datasource = Objects.requireNonNull(root.findChild(PropertyName.adapt("spring.datasource")));
+    assertTrue(datasource.getData().isEmpty());
+    assertSame(url.getData().get(0), datasource.findChild(PropertyName.adapt("url")).getData().get(0));
+    assertNull(root.findChild(PropertyName.adapt("spring.datasource.password")));
+    assertNull(root.findChild(PropertyName.adapt("spring.datasource.url.more")));
+  }
+
+
+  @Test
+  void getChildrenByPrefix() {
+    NameTreeNode root = build().getRoot();
+    assertEquals(List.of("a", "c", "spring"), keys(root.getChildren("")));
+    NameTreeNode datasource = Objects.requireNonNull(root.findChild(PropertyName.adapt("spring.datasource")));
+    assertEquals(List.of("url", "username"), keys(datasource.getChildren("u")));
+    assertEquals(List.of("url"), keys(datasource.getChildren("ur")));
+    assertEquals(List.of("username"), keys(datasource.getChildren("use")));
+    assertTrue(datasource.getChildren("x").isEmpty());
+    assertTrue(datasource.getChildren("urls").isEmpty());
+  }
+
+
+  @Test
+  void indexedElements() {
+    NameTreeNode root = build().getRoot();
+    NameTreeNode a = Objects.requireNonNull(root.findChild(PropertyName.adapt("a")));
+    assertTrue(a.isIndexed());
+    assertEquals(List.of("*"), keys(a.getChildren("")));
+    List<MetadataItem> b = List.of(item("a[*].b"));
+    assertEquals(b, Objects.requireNonNull(root.findChild(PropertyName.adapt("a.x.b"))).getData());
+    assertEquals(b, Objects.requireNonNull(root.findChild(PropertyName.adapt("a[y].b"))).getData());
+    assertNull(root.findChild(PropertyName.adapt("a.x.c")));
+
+    NameTreeNode c = Objects.requireNonNull(root.findChild(PropertyName.adapt("c")));
+    assertTrue(c.isIndexed());
+    assertEquals(List.of(item("c[#]")), Objects.requireNonNull(root.findChild(PropertyName.adapt("c[0]"))).getData());
+    assertNull(root.findChild(PropertyName.adapt("c.x")));
+    assertFalse(Objects.requireNonNull(root.findChild(PropertyName.adapt("spring"))).isIndexed());
+  }
+
+
+  private NameTrie build() {
+    NameTrie.Builder builder = new NameTrie.Builder();
+    index.getProperties().forEach(builder::add);
+    return builder.build();
+  }
+
+
+  private MetadataItem item(String name) {
+    return index.getProperties().get(PropertyName.of(name));
+  }
+
+
+  private static List<String> keys(List<NameTreeNode> nodes) {
+    return nodes.stream().map(NameTreeNode::getKey).toList();
+  }
+}
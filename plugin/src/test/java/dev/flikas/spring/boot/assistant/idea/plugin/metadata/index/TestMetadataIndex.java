@@ -0,0 +1,50 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.index;
+
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.source.ConfigurationMetadata;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index of metadata built in code, which needs no project.
+ */
+class TestMetadataIndex extends MetadataIndexBase {
+  TestMetadataIndex(ConfigurationMetadata metadata) {
+    super(null);
+    add("test", metadata);
+  }
+
+
+  static TestMetadataIndex ofProperties(String... names) {
+    return new TestMetadataIndex(metadata(List.of(), List.of(names), List.of()));
+  }
+
+
+  static ConfigurationMetadata metadata(List<String> groups, List<String> properties, List<String> hints) {
+    ConfigurationMetadata metadata = new ConfigurationMetadata();
+    metadata.setGroups(new ArrayList<>(groups.stream().map(name -> {
+      ConfigurationMetadata.Group group = new ConfigurationMetadata.Group();
+      group.setName(name);
+      return group;
+    }).toList()));
+    metadata.setProperties(new ArrayList<>(properties.stream().map(name -> {
+      ConfigurationMetadata.Property property = new ConfigurationMetadata.Property();
+      property.setName(name);
+      property.setType("java.lang.String");
+      return property;
+    }).toList()));
+    metadata.setHints(new ArrayList<>(hints.stream().map(name -> {
+      ConfigurationMetadata.Hint hint = new ConfigurationMetadata.Hint();
+      hint.setName(name);
+      return hint;
+    }).toList()));
+    return metadata;
+  }
+
+
+  @Override
+  public @NotNull List<MetadataSource> getSource() {
+    return List.of();
+  }
+}
@@ -0,0 +1,114 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigurationPropertiesScannerTest extends JavaFixtureTestBase {
+  private ConfigurationPropertiesScanner scanner;
+
+
+  @BeforeEach
+  void setUp() {
+    fixture.addClass("""
+        package org.springframework.boot.context.properties;
+        public @interface ConfigurationProperties {
+          String value() default "";
+          String prefix() default "";
+        }""");
+    fixture.addClass("""
+        package org.springframework.context.annotation;
+        public @interface Bean {}""");
+    this.scanner = new ConfigurationPropertiesScanner(fixture.getModule());
+  }
+
+
+  @Test
+  void annotatedClassesAndBeanMethods() {
+    fixture.addClass("""
+        package scan;
+        import org.springframework.boot.context.properties.ConfigurationProperties;
+        @ConfigurationProperties("app")
+        public class AppProperties {
+          private String name;
+          public void setName(String name) {}
+        }""");
+    fixture.addClass("""
+        package scan;
+        import org.springframework.boot.context.properties.ConfigurationProperties;
+        import org.springframework.context.annotation.Bean;
+        public class Config {
+          @Bean
+          @ConfigurationProperties(prefix = "bean")
+          public Server server() { return null; }
+        }""");
+    fixture.addClass("""
+        package scan;
+        public class Server {
+          private int port;
+          public void setPort(int port) {}
+        }""");
+    assertTrue(scan());
+    MetadataIndex index = scanner.getIndex();
+    assertNotNull(index.getGroup("app"));
+    assertNotNull(index.getProperty("app.name"));
+    assertNotNull(index.getGroup("bean"));
+    assertNotNull(index.getProperty("bean.port"));
+    assertNull(index.getProperty("server.port"));
+  }
+
+
+  @Test
+  void rescannedOnlyAfterRelevantChanges() {
+    PsiClass properties = fixture.addClass("""
+        package rescan;
+        import org.springframework.boot.context.properties.ConfigurationProperties;
+        @ConfigurationProperties("app")
+        public class AppProperties {
+          private String name;
+          public void setName(String name) {}
+        }""");
+    PsiClass other = fixture.addClass("""
+        package rescan;
+        public class Other {
+          private String name;
+        }""");
+    assertTrue(scan());
+    assertFalse(scan());
+
+    // Nothing to do with configuration properties.
+    addField(other, "private int size;");
+    assertFalse(scan());
+
+    addField(properties, "private int size;");
+    addMethod(properties, "public void setSize(int size) {}");
+    assertTrue(scan());
+    assertNotNull(scanner.getIndex().getProperty("app.size"));
+  }
+
+
+  private boolean scan() {
+    return ReadAction.compute(scanner::scanIfChanged);
+  }
+
+
+  private void addField(PsiClass psiClass, String field) {
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> psiClass.add(
+        JavaPsiFacade.getElementFactory(getProject()).createFieldFromText(field, psiClass)));
+  }
+
+
+  private void addMethod(PsiClass psiClass, String method) {
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> psiClass.add(
+        JavaPsiFacade.getElementFactory(getProject()).createMethodFromText(method, psiClass)));
+  }
+}
@@ -0,0 +1,44 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.JavaCodeInsightTestFixture;
+import com.intellij.testFramework.fixtures.JavaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import com.intellij.testFramework.fixtures.TestFixtureBuilder;
+import com.intellij.testFramework.junit5.RunInEdt;
+import com.intellij.testFramework.junit5.TestApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Base of tests that need classes in a light java project, which is shared by the tests of a class.
+ */
+@TestApplication
+@RunInEdt(writeIntent = true)
+abstract class JavaFixtureTestBase {
+  protected JavaCodeInsightTestFixture fixture;
+
+
+  @BeforeEach
+  void setUpFixture() throws Exception {
+    LightProjectDescriptor descriptor = LightJavaCodeInsightFixtureTestCase.JAVA_21;
+    TestFixtureBuilder<IdeaProjectTestFixture> builder =
+        IdeaTestFixtureFactory.getFixtureFactory().createLightFixtureBuilder(descriptor, getClass().getName());
+    this.fixture = JavaTestFixtureFactory.getFixtureFactory().createCodeInsightFixture(builder.getFixture());
+    this.fixture.setUp();
+  }
+
+
+  @AfterEach
+  void tearDownFixture() throws Exception {
+    this.fixture.tearDown();
+  }
+
+
+  protected Project getProject() {
+    return this.fixture.getProject();
+  }
+}
@@ -0,0 +1,45 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetadataRefreshQueueTest {
+  @Test
+  void delayIsDebounced() {
+    assertEquals(500, MetadataRefreshQueue.getDelay(1000, 1000));
+    assertEquals(500, MetadataRefreshQueue.getDelay(1000, 5000));
+  }
+
+
+  @Test
+  void delayIsBoundedByFirstRequest() {
+    // A steady stream of requests, the task runs no later than 5s after the first one.
+    assertEquals(200, MetadataRefreshQueue.getDelay(1000, 5800));
+    assertEquals(0, MetadataRefreshQueue.getDelay(1000, 6000));
+    assertEquals(0, MetadataRefreshQueue.getDelay(1000, 9000));
+  }
+
+
+  @Test
+  void dependentsVisitedOnce() {
+    // b and c depend on a, d depends on both of them.
+    Map<String, List<String>> dependents = Map.of("a", List.of("b", "c"), "b", List.of("d"), "c", List.of("d", "a"));
+    assertEquals(Set.of("a", "b", "c", "d"),
+        MetadataRefreshQueue.withDependents(List.of("a", "c"), m -> dependents.getOrDefault(m, List.of())));
+    assertEquals(Set.of("b", "d"),
+        MetadataRefreshQueue.withDependents(List.of("b", "b"), m -> dependents.getOrDefault(m, List.of())));
+  }
+
+
+  @Test
+  void modulesSortedByDependencies() {
+    List<String> sortedModules = List.of("a", "b", "c", "d", "e");
+    assertEquals(List.of("a", "c", "d"), MetadataRefreshQueue.sortModules(Set.of("d", "a", "c"), sortedModules));
+    assertEquals(List.of(), MetadataRefreshQueue.sortModules(Set.of("x"), sortedModules));
+  }
+}
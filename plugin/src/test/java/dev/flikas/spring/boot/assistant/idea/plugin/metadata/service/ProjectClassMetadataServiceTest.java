@@ -0,0 +1,175 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElementFactory;
+import dev.flikas.spring.boot.assistant.idea.plugin.metadata.index.MetadataIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProjectClassMetadataServiceTest extends JavaFixtureTestBase {
+  @Test
+  void reachable() {
+    Map<String, Set<String>> subclasses = Map.of("a", Set.of("b"), "b", Set.of("c"));
+    Map<String, Set<String>> dependents = Map.of("c", Set.of("d", "a"), "x", Set.of("y"));
+    assertEquals(Set.of("a", "b", "c", "d"),
+        ProjectClassMetadataService.reachable(List.of("a"), List.of(subclasses, dependents)));
+    assertEquals(Set.of("a", "b", "c"), ProjectClassMetadataService.reachable(List.of("a"), List.of(subclasses)));
+    assertEquals(Set.of("e"), ProjectClassMetadataService.reachable(List.of("e"), List.of(subclasses, dependents)));
+  }
+
+
+  @Test
+  void regeneratedAfterNestedClassChanged() {
+    fixture.addClass("""
+        package edit;
+        public class Props {
+          private String name;
+          private Nested nested;
+          public void setName(String name) {}
+          public void setNested(Nested nested) {}
+        }""");
+    fixture.addClass("""
+        package edit;
+        public class Nested {
+          private int size;
+          public void setSize(int size) {}
+        }""");
+    MetadataIndex index = getMetadata("edit.Props");
+    assertNotNull(index.getProperty("app.name"));
+    assertNotNull(index.getProperty("app.nested.size"));
+    assertNull(index.getProperty("app.nested.max-size"));
+
+    addMembers("edit.Nested", "private long maxSize;", "public void setMaxSize(long maxSize) {}");
+    assertNotNull(index.getProperty("app.nested.max-size"));
+    assertNotNull(index.getProperty("app.nested.size"));
+    assertNotNull(index.getProperty("app.name"));
+  }
+
+
+  @Test
+  void regeneratedAfterTypeTurnsIntoValueType() {
+    fixture.addClass("""
+        package flip;
+        public class Props {
+          private Nested nested;
+          public void setNested(Nested nested) {}
+        }""");
+    fixture.addClass("""
+        package flip;
+        public class Nested {
+          private int size;
+          public void setSize(int size) {}
+        }""");
+    MetadataIndex index = getMetadata("flip.Props");
+    assertNull(index.getProperty("app.nested"));
+    assertNotNull(index.getProperty("app.nested.size"));
+
+    // Can be converted from a string now, it is a leaf property.
+    addMembers("flip.Nested", "public Nested(String value) {}");
+    assertNotNull(index.getProperty("app.nested"));
+    assertNull(index.getProperty("app.nested.size"));
+  }
+
+
+  @Test
+  void nestedPropertiesBeyondBudgetLoadedOnLookup() {
+    Registry.get("spring.boot.assistant.metadata.class.max.depth").setValue(1, fixture.getTestRootDisposable());
+    fixture.addClass("""
+        package deep;
+        public class A {
+          private String a;
+          private B b;
+          public void setA(String a) {}
+          public void setB(B b) {}
+        }""");
+    fixture.addClass("""
+        package deep;
+        public class B {
+          private String b;
+          private C c;
+          public void setB(String b) {}
+          public void setC(C c) {}
+        }""");
+    fixture.addClass("""
+        package deep;
+        public class C {
+          private String c;
+          private D d;
+          public void setC(String c) {}
+          public void setD(D d) {}
+        }""");
+    fixture.addClass("""
+        package deep;
+        public class D {
+          private String d;
+          public void setD(String d) {}
+        }""");
+    MetadataIndex index = getMetadata("deep.A");
+    assertNotNull(index.getProperty("app.a"));
+    assertNotNull(index.getProperty("app.b.b"));
+    // Beyond the depth, generated by lookups.
+    assertNotNull(index.getProperty("app.b.c.c"));
+    assertNotNull(index.getProperty("app.b.c.d.d"));
+    assertNull(index.getProperty("app.b.c.d.e"));
+  }
+
+
+  @Test
+  void cyclesBrokenInLazyParts() {
+    Registry.get("spring.boot.assistant.metadata.class.max.depth").setValue(0, fixture.getTestRootDisposable());
+    fixture.addClass("""
+        package cycle;
+        public class Node {
+          private String name;
+          private Node next;
+          private Child child;
+          public void setName(String name) {}
+          public void setNext(Node next) {}
+          public void setChild(Child child) {}
+        }""");
+    fixture.addClass("""
+        package cycle;
+        public class Child {
+          private String id;
+          private Node parent;
+          public void setId(String id) {}
+          public void setParent(Node parent) {}
+        }""");
+    MetadataIndex index = getMetadata("cycle.Node");
+    assertNotNull(index.getProperty("app.name"));
+    assertNotNull(index.getProperty("app.child.id"));
+    // Classes visited by the generation that a lazy part is created in are not generated again.
+    assertNull(index.getProperty("app.next.name"));
+    assertNull(index.getProperty("app.child.parent.name"));
+  }
+
+
+  private MetadataIndex getMetadata(String className) {
+    PsiClass psiClass = fixture.findClass(className);
+    return getProject().getService(ProjectClassMetadataService.class)
+        .getMetadata("app", JavaPsiFacade.getElementFactory(getProject()).createType(psiClass))
+        .orElseThrow();
+  }
+
+
+  private void addMembers(String className, String... members) {
+    PsiClass psiClass = fixture.findClass(className);
+    PsiElementFactory factory = JavaPsiFacade.getElementFactory(getProject());
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      for (String member : members) {
+        psiClass.add(member.contains("(")
+            ? factory.createMethodFromText(member, psiClass) : factory.createFieldFromText(member, psiClass));
+      }
+    });
+  }
+}
@@ -0,0 +1,27 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectMetadataServiceTest {
+  @Test
+  void descendantOfDirectory() {
+    assertTrue(ProjectMetadataService.isDescendant("/a/b/META-INF/x.json", "/a/b"));
+    assertTrue(ProjectMetadataService.isDescendant("/a/b/META-INF/x.json", "/a/b/META-INF"));
+    assertFalse(ProjectMetadataService.isDescendant("/a/b/META-INF/x.json", "/a/b/META-INF/x.json"));
+    // A sibling that has the same prefix.
+    assertFalse(ProjectMetadataService.isDescendant("/a/bc/META-INF/x.json", "/a/b"));
+    assertFalse(ProjectMetadataService.isDescendant("/a/b", "/a/b/META-INF"));
+  }
+
+
+  @Test
+  void descendantOfArchive() {
+    assertTrue(ProjectMetadataService.isDescendant("/lib/a.jar!/META-INF/x.json", "/lib/a.jar"));
+    assertTrue(ProjectMetadataService.isDescendant("/lib/a.jar!/META-INF/x.json", "/lib"));
+    assertFalse(ProjectMetadataService.isDescendant("/lib/a.jar!/META-INF/x.json", "/lib/a"));
+    assertFalse(ProjectMetadataService.isDescendant("/lib/a.jar2!/META-INF/x.json", "/lib/a.jar"));
+  }
+}
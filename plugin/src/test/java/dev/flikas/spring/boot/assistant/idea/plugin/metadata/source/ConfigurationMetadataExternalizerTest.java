@@ -0,0 +1,73 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.source;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ConfigurationMetadataExternalizerTest {
+  @Test
+  void saveAndRead() throws IOException {
+    ConfigurationMetadata metadata;
+    try (Reader reader = new InputStreamReader(
+        Objects.requireNonNull(getClass().getResourceAsStream("/metadata/sample-spring-configuration-metadata.json")),
+        StandardCharsets.UTF_8)) {
+      metadata = new Gson().fromJson(reader, ConfigurationMetadata.class);
+    }
+    assertEquals(metadata, saveAndRead(metadata));
+  }
+
+
+  @Test
+  void saveAndReadEmpty() throws IOException {
+    ConfigurationMetadata metadata = new ConfigurationMetadata();
+    ConfigurationMetadata read = saveAndRead(metadata);
+    assertEquals(metadata, read);
+    assertNull(read.getGroups());
+    assertNull(read.getHints());
+  }
+
+
+  @Test
+  void saveAndReadNullListsAndArrays() throws IOException {
+    ConfigurationMetadata metadata = new ConfigurationMetadata();
+    metadata.setGroups(new ArrayList<>());
+    metadata.setProperties(null);
+    ConfigurationMetadata read = saveAndRead(metadata);
+    assertEquals(List.of(), read.getGroups());
+    assertNull(read.getProperties());
+    assertNull(read.getHints());
+
+    ConfigurationMetadata.Property property = new ConfigurationMetadata.Property();
+    property.setName("a.b");
+    property.setDefaultValue(new Object[]{"x", null});
+    metadata.setProperties(new ArrayList<>(List.of(property)));
+    read = saveAndRead(metadata);
+    assertEquals(Arrays.asList("x", null), read.getProperties().get(0).getDefaultValue());
+  }
+
+
+  private static ConfigurationMetadata saveAndRead(ConfigurationMetadata metadata) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      ConfigurationMetadataExternalizer.INSTANCE.save(out, metadata);
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return ConfigurationMetadataExternalizer.INSTANCE.read(in);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package dev.flikas.spring.boot.assistant.idea.plugin.metadata.source;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ConfigurationMetadataReaderTest {
+  private static final String SAMPLE = "/metadata/sample-spring-configuration-metadata.json";
+  private static final String LENIENT_SAMPLE = "/metadata/lenient-spring-configuration-metadata.json";
+
+
+  @Test
+  void readSameAsGson() throws IOException {
+    ConfigurationMetadata expected;
+    try (Reader reader = openSample()) {
+      expected = new Gson().fromJson(reader, ConfigurationMetadata.class);
+    }
+    try (Reader reader = openSample()) {
+      assertEquals(expected, ConfigurationMetadataReader.read(reader));
+    }
+  }
+
+
+  @Test
+  void readSharesRepeatedStrings() throws IOException {
+    ConfigurationMetadata metadata;
+    try (Reader reader = openSample()) {
+      metadata = Objects.requireNonNull(ConfigurationMetadataReader.read(reader));
+    }
+    assertSame(metadata.getGroups().get(0).getSourceType(), metadata.getProperties().get(0).getSourceType());
+  }
+
+
+  @Test
+  void readLenient() throws IOException {
+    ConfigurationMetadata metadata;
+    try (Reader reader = open(LENIENT_SAMPLE)) {
+      metadata = Objects.requireNonNull(ConfigurationMetadataReader.read(reader));
+    }
+    assertEquals(1, metadata.getGroups().size());
+    assertEquals("lenient.server", metadata.getGroups().get(0).getName());
+    assertEquals(2, metadata.getProperties().size());
+    assertEquals("lenient.server.port", metadata.getProperties().get(0).getName());
+    assertEquals("java.lang.Integer", metadata.getProperties().get(0).getType());
+    assertEquals("lenient.server.host", metadata.getProperties().get(1).getName());
+  }
+
+
+  @Test
+  void readEmpty() throws IOException {
+    assertNull(ConfigurationMetadataReader.read(new StringReader("")));
+  }
+
+
+  private Reader openSample() {
+    return open(SAMPLE);
+  }
+
+
+  private Reader open(String resource) {
+    return new InputStreamReader(Objects.requireNonNull(getClass().getResourceAsStream(resource)), StandardCharsets.UTF_8);
+  }
+}